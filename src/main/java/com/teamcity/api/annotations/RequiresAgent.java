@@ -0,0 +1,26 @@
+package com.teamcity.api.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Annotation for marking tests that run real builds and therefore need a free build agent.
+ * <p>
+ * The pre-suite health gate probes the agents of the server. When fewer authorized agents or free
+ * agents are available than configured, tests with this annotation are skipped immediately
+ * instead of waiting for a build that never starts.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see com.teamcity.api.health.ServerHealthProbe
+ */
+@Target({METHOD, TYPE})
+@Retention(RUNTIME)
+public @interface RequiresAgent {
+}
@@ -0,0 +1,96 @@
+package com.teamcity.api.builds;
+
+import com.teamcity.api.models.Build;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Latency breakdown of a single finished build.
+ * <p>
+ * A missing date (for example, a build cancelled in the queue has no start date) makes the
+ * durations that depend on it null.
+ * </p>
+ *
+ * @param buildId the id of the build
+ * @param agent the name of the agent the build ran on, or null
+ * @param queueWait the time from queueing to start
+ * @param run the time from start to finish
+ * @param endToEnd the time from queueing to finish
+ * @param waitReasons the distinct wait reasons observed while the build was queued
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see BuildTimings
+ */
+public record BuildTiming(String buildId, String agent, Duration queueWait, Duration run, Duration endToEnd,
+                          List<String> waitReasons) {
+
+    /**
+     * Format of TeamCity REST API dates.
+     */
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssZ");
+
+    /**
+     * Milliseconds in a second, for formatting.
+     */
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    /**
+     * Computes the breakdown of a finished build.
+     *
+     * @param build the build read from the server, with dates
+     * @param waitReasons the wait reasons observed while the build was queued
+     * @return the breakdown
+     */
+    public static BuildTiming of(Build build, Collection<String> waitReasons) {
+        var queued = parse(build.getQueuedDate());
+        var started = parse(build.getStartDate());
+        var finished = parse(build.getFinishDate());
+        return new BuildTiming(build.getId(), build.getAgent() == null ? null : build.getAgent().getName(),
+                between(queued, started), between(started, finished), between(queued, finished),
+                List.copyOf(waitReasons));
+    }
+
+    @Override
+    public String toString() {
+        return "Build %s on %s: queue wait %s, run %s, end-to-end %s%s".formatted(buildId,
+                agent == null ? "no agent" : agent, format(queueWait), format(run), format(endToEnd),
+                waitReasons.isEmpty() ? "" : "\nWait reasons:\n" + String.join("\n", waitReasons));
+    }
+
+    /**
+     * Formats a duration for the report.
+     *
+     * @param duration the duration, or null
+     * @return the duration in seconds, or "unknown"
+     */
+    static String format(Duration duration) {
+        return duration == null ? "unknown" : "%.1f s".formatted(duration.toMillis() / MILLIS_PER_SECOND);
+    }
+
+    /**
+     * Parses a TeamCity date.
+     *
+     * @param date the date, or null
+     * @return the parsed date, or null
+     */
+    private static OffsetDateTime parse(String date) {
+        return date == null ? null : OffsetDateTime.parse(date, DATE_FORMAT);
+    }
+
+    /**
+     * Computes the duration between two dates.
+     *
+     * @param from the start, or null
+     * @param to the end, or null
+     * @return the duration, or null if any date is missing
+     */
+    private static Duration between(OffsetDateTime from, OffsetDateTime to) {
+        return from == null || to == null ? null : Duration.between(from, to);
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.teamcity.api.builds;
+
+import com.teamcity.api.models.Build;
+import io.qameta.allure.Allure;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Process-wide collector of build latency breakdowns.
+ * <p>
+ * {@link BuildWatcher} reports every polled build with {@link #observe(Build)}, so the wait reasons
+ * of queued builds are captured while they are still known. When a test has its finished build, it
+ * calls {@link #attach(Build)}: the breakdown into queue wait, run and end-to-end time is attached to
+ * the test in the Allure report and added to the suite aggregate.
+ * </p>
+ *
+ * <p>
+ * {@link #getReport()} renders the queue wait, run and end-to-end histograms of all builds of the
+ * suite. A large queue wait with a normal run time means the TeamCity queue was saturated; a large
+ * run time means the build itself is slow.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see BuildTiming
+ * @see LatencyHistogram
+ */
+public final class BuildTimings {
+
+    /**
+     * The process-wide collector.
+     */
+    private static final BuildTimings TIMINGS = new BuildTimings();
+
+    /**
+     * Wait reasons observed for builds that are not attached yet, by build id.
+     */
+    private final Map<String, Set<String>> waitReasons = new ConcurrentHashMap<>();
+
+    /**
+     * Breakdowns of all attached builds.
+     */
+    private final Queue<BuildTiming> timings = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private BuildTimings() {
+    }
+
+    /**
+     * Gets the process-wide collector.
+     *
+     * @return the collector
+     */
+    public static BuildTimings getTimings() {
+        return TIMINGS;
+    }
+
+    /**
+     * Records the state of a polled build.
+     *
+     * @param build the polled build
+     */
+    public void observe(Build build) {
+        if (build.getWaitReason() != null) {
+            waitReasons.computeIfAbsent(build.getId(), id -> new ConcurrentSkipListSet<>()).add(build.getWaitReason());
+        }
+    }
+
+    /**
+     * Computes the breakdown of a finished build, attaches it to the current test and adds it to the suite.
+     *
+     * @param build the finished build, read with its dates
+     * @return the breakdown
+     */
+    public BuildTiming attach(Build build) {
+        var reasons = waitReasons.remove(build.getId());
+        var timing = BuildTiming.of(build, reasons == null ? Set.of() : reasons);
+        timings.add(timing);
+        Allure.addAttachment("Build timing", timing.toString());
+        return timing;
+    }
+
+    /**
+     * Gets the histograms of all attached builds.
+     *
+     * @return the queue wait, run and end-to-end histograms
+     */
+    public List<LatencyHistogram> getHistograms() {
+        return List.of(histogram("Queue wait", BuildTiming::queueWait), histogram("Run", BuildTiming::run),
+                histogram("End-to-end", BuildTiming::endToEnd));
+    }
+
+    /**
+     * Renders the histograms of all attached builds.
+     *
+     * @return the report, or null if no build was attached
+     */
+    public String getReport() {
+        if (timings.isEmpty()) {
+            return null;
+        }
+        var report = new StringBuilder();
+        getHistograms().forEach(histogram -> report.append(histogram).append("\n\n"));
+        timings.forEach(timing -> report.append(timing).append('\n'));
+        return report.toString();
+    }
+
+    /**
+     * Gets the percentiles of all attached builds, for the Allure environment.
+     *
+     * @return the p50 and p95 of every histogram, empty if no build was attached
+     */
+    public Map<String, String> getSummary() {
+        var summary = new LinkedHashMap<String, String>();
+        getHistograms().stream().filter(histogram -> histogram.getCount() > 0).forEach(histogram -> {
+            var prefix = "Build " + histogram.getName().toLowerCase(Locale.ROOT);
+            summary.put(prefix + " p50", BuildTiming.format(histogram.getMedian()));
+            summary.put(prefix + " p95", BuildTiming.format(histogram.getTail()));
+        });
+        return summary;
+    }
+
+    /**
+     * Builds a histogram of one component of the attached builds.
+     *
+     * @param name the name of the histogram
+     * @param component the component of the breakdown
+     * @return the histogram
+     */
+    private LatencyHistogram histogram(String name, Function<BuildTiming, Duration> component) {
+        return new LatencyHistogram(name, timings.stream().map(component).toList());
+    }
+
+}
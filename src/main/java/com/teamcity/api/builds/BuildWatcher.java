@@ -0,0 +1,272 @@
+package com.teamcity.api.builds;
+
+import com.teamcity.api.config.Config;
+import com.teamcity.api.enums.Endpoint;
+import com.teamcity.api.impact.UsageRecorder;
+import com.teamcity.api.models.Build;
+import com.teamcity.api.spec.RequestSpecs;
+import io.restassured.RestAssured;
+import io.restassured.specification.RequestSpecification;
+import org.apache.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Process-wide watcher that waits for builds to finish on behalf of all running tests.
+ * <p>
+ * Instead of every test polling its own build, tests register their builds with
+ * {@link #watch(String)} and get a CompletableFuture. A single background thread polls all watched
+ * builds with one request per {@value #MAX_BUILDS_PER_QUERY} builds, using a multi-item locator
+ * ({@code item:(id:1),item:(id:2)}), and completes every future as soon as its build is finished.
+ * </p>
+ *
+ * <p>
+ * The polling interval adapts to the watched builds: while any of them is running, the watcher
+ * polls every buildWatchMinIntervalMillis. While all of them are still queued, the interval grows
+ * with the number of queued builds, up to buildWatchMaxIntervalMillis, because a deep queue cannot
+ * produce a finished build soon. Polling stops when nothing is watched.
+ * </p>
+ *
+ * <p>
+ * Polled builds carry their dates, agent and wait reason and are reported to {@link BuildTimings}.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ */
+public final class BuildWatcher {
+
+    /**
+     * Maximum number of builds in one multi-item locator, keeps the request URL short.
+     */
+    private static final int MAX_BUILDS_PER_QUERY = 100;
+
+    /**
+     * Fields of the polled builds: the list representation has no dates, agent or wait reason by default.
+     */
+    private static final String BUILD_FIELDS = "count,build(id,state,status,queuedDate,startDate,finishDate,"
+            + "waitReason,agent(id,name),buildType(id,name))";
+
+    /**
+     * State of a finished build.
+     */
+    private static final String FINISHED_STATE = "finished";
+
+    /**
+     * State of a build waiting in the queue.
+     */
+    private static final String QUEUED_STATE = "queued";
+
+    /**
+     * Specification of the polling requests.
+     */
+    private final RequestSpecification spec;
+
+    /**
+     * Polling interval while a watched build is running.
+     */
+    private final long minIntervalMillis;
+
+    /**
+     * Upper bound of the polling interval.
+     */
+    private final long maxIntervalMillis;
+
+    /**
+     * Time after which a watched build is no longer waited for.
+     */
+    private final Duration timeout;
+
+    /**
+     * Futures of the watching tests, mapped to the ids of their builds.
+     */
+    private final Map<CompletableFuture<Build>, String> watchers = new ConcurrentHashMap<>();
+
+    /**
+     * Thread that polls the server.
+     */
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("build-watcher").factory());
+
+    /**
+     * Whether a poll is scheduled, guarded by this.
+     */
+    private boolean polling;
+
+    /**
+     * Creates a watcher.
+     *
+     * @param spec the specification of the polling requests
+     * @param minIntervalMillis the polling interval while a watched build is running
+     * @param maxIntervalMillis the upper bound of the polling interval
+     * @param timeout the time after which a watched build is no longer waited for
+     */
+    BuildWatcher(RequestSpecification spec, long minIntervalMillis, long maxIntervalMillis, Duration timeout) {
+        this.spec = spec;
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Gets the process-wide watcher.
+     *
+     * @return the watcher
+     */
+    public static BuildWatcher getWatcher() {
+        return Holder.WATCHER;
+    }
+
+    /**
+     * Starts watching a build.
+     *
+     * @param buildId the id of the build, queued or running
+     * @return a future completed with the finished build, or with a TimeoutException after buildWatchTimeoutSeconds
+     */
+    public CompletableFuture<Build> watch(String buildId) {
+        // Запросы делает поток watcher'а, поэтому ресурс записываем за тест сами (для выбора тестов по изменениям)
+        UsageRecorder.recordRequest("GET", Endpoint.BUILDS.getUrl());
+        var future = new CompletableFuture<Build>();
+        watchers.put(future, buildId);
+        synchronized (this) {
+            if (!polling) {
+                polling = true;
+                poller.schedule(this::poll, minIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        return future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Polls all watched builds once and schedules the next poll.
+     */
+    private void poll() {
+        // Завершенные по таймауту или отмененные ожидания больше не опрашиваем
+        watchers.keySet().removeIf(CompletableFuture::isDone);
+        var buildIds = new TreeSet<>(watchers.values());
+        if (buildIds.isEmpty()) {
+            synchronized (this) {
+                // Повторная проверка под локом: watch мог добавить билд после снимка
+                if (watchers.isEmpty()) {
+                    polling = false;
+                    return;
+                }
+            }
+            poller.execute(this::poll);
+            return;
+        }
+
+        long nextInterval;
+        try {
+            var builds = readBuilds(new ArrayList<>(buildIds));
+            // Причины ожидания есть только у билдов в очереди, поэтому запоминаем их при каждом опросе
+            builds.values().forEach(BuildTimings.getTimings()::observe);
+            watchers.forEach((future, buildId) -> {
+                var build = builds.get(buildId);
+                if (build != null && FINISHED_STATE.equals(build.getState())) {
+                    future.complete(build);
+                }
+            });
+            nextInterval = getInterval(builds.values());
+        } catch (RuntimeException e) {
+            // Сервер недоступен или перегружен: продолжаем опрос реже, таймаут ожидания ограничит тесты
+            nextInterval = maxIntervalMillis;
+        }
+        poller.schedule(this::poll, nextInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads the current state of builds, splitting them into multi-item queries.
+     *
+     * @param buildIds the ids of the builds
+     * @return the builds found, by id
+     */
+    private Map<String, Build> readBuilds(List<String> buildIds) {
+        var builds = new HashMap<String, Build>();
+        for (var from = 0; from < buildIds.size(); from += MAX_BUILDS_PER_QUERY) {
+            var chunk = buildIds.subList(from, Math.min(buildIds.size(), from + MAX_BUILDS_PER_QUERY));
+            var response = RestAssured.given().spec(spec)
+                    .queryParam("locator", chunk.stream()
+                            .map(id -> "item:(id:" + id + ")")
+                            .collect(Collectors.joining(",")))
+                    .queryParam("fields", BUILD_FIELDS)
+                    .get(Endpoint.BUILDS.getUrl());
+            if (response.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                // Один удаленный билд роняет весь запрос, поэтому читаем билды этой пачки по одному
+                chunk.forEach(id -> readBuild(id, builds));
+            } else if (response.getStatusCode() != HttpStatus.SC_OK) {
+                throw new IllegalStateException("HTTP " + response.getStatusCode() + " while polling builds");
+            } else {
+                response.jsonPath().getList("build", Build.class).forEach(build -> builds.put(build.getId(), build));
+            }
+        }
+        return builds;
+    }
+
+    /**
+     * Reads one build; fails the watchers of a build that no longer exists.
+     *
+     * @param buildId the id of the build
+     * @param builds the map the build is added to
+     */
+    private void readBuild(String buildId, Map<String, Build> builds) {
+        var response = RestAssured.given().spec(spec).get(Endpoint.BUILDS.getUrl() + "/id:" + buildId);
+        if (response.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+            var error = new IllegalStateException("Build " + buildId + " does not exist");
+            watchers.forEach((future, id) -> {
+                if (id.equals(buildId)) {
+                    future.completeExceptionally(error);
+                }
+            });
+        } else if (response.getStatusCode() == HttpStatus.SC_OK) {
+            builds.put(buildId, response.as(Build.class));
+        }
+    }
+
+    /**
+     * Chooses the interval of the next poll from the states of the watched builds.
+     *
+     * @param builds the polled builds
+     * @return the interval in milliseconds
+     */
+    private long getInterval(Iterable<Build> builds) {
+        var queued = 0L;
+        for (var build : builds) {
+            if (!QUEUED_STATE.equals(build.getState()) && !FINISHED_STATE.equals(build.getState())) {
+                // Запущенный билд может закончиться в любой момент, опрашиваем часто
+                return minIntervalMillis;
+            }
+            if (QUEUED_STATE.equals(build.getState())) {
+                queued++;
+            }
+        }
+        return Math.min(maxIntervalMillis, minIntervalMillis * (1 + queued));
+    }
+
+    /**
+     * Lazy holder of the process-wide watcher.
+     */
+    private static final class Holder {
+
+        /**
+         * The process-wide watcher.
+         */
+        private static final BuildWatcher WATCHER = new BuildWatcher(RequestSpecs.superUserBackgroundSpec(),
+                Config.getLong("buildWatchMinIntervalMillis"), Config.getLong("buildWatchMaxIntervalMillis"),
+                Duration.ofSeconds(Config.getLong("buildWatchTimeoutSeconds")));
+
+    }
+
+}
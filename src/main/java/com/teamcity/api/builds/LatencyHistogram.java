@@ -0,0 +1,141 @@
+package com.teamcity.api.builds;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Histogram of build latencies with fixed, roughly logarithmic buckets.
+ * <p>
+ * The samples are kept, so percentiles are exact; a suite runs at most a few hundred builds.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see BuildTimings
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Upper bounds of the buckets in seconds; the last bucket is unbounded.
+     */
+    private static final long[] BUCKET_SECONDS = {1, 2, 5, 10, 30, 60, 120, 300};
+
+    /**
+     * Width of the bar of the largest bucket, in characters.
+     */
+    private static final int BAR_WIDTH = 40;
+
+    /**
+     * Percentile printed as the typical value.
+     */
+    private static final double MEDIAN = 0.5;
+
+    /**
+     * Percentile printed as the tail value.
+     */
+    private static final double TAIL = 0.95;
+
+    /**
+     * Name of the histogram.
+     */
+    private final String name;
+
+    /**
+     * Sorted samples in milliseconds.
+     */
+    private final List<Long> samples;
+
+    /**
+     * Creates a histogram of the given durations; null durations are ignored.
+     *
+     * @param name the name of the histogram
+     * @param durations the durations
+     */
+    public LatencyHistogram(String name, Collection<Duration> durations) {
+        this.name = name;
+        this.samples = new ArrayList<>();
+        durations.stream().filter(Objects::nonNull).forEach(duration -> samples.add(duration.toMillis()));
+        samples.sort(null);
+    }
+
+    /**
+     * Gets the name of the histogram.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of samples.
+     *
+     * @return the number of samples
+     */
+    public int getCount() {
+        return samples.size();
+    }
+
+    /**
+     * Gets a percentile using the nearest-rank method.
+     *
+     * @param percentile the percentile, from 0 to 1
+     * @return the percentile, or null if there are no samples
+     */
+    public Duration getPercentile(double percentile) {
+        if (samples.isEmpty()) {
+            return null;
+        }
+        var rank = (int) Math.ceil(percentile * samples.size());
+        return Duration.ofMillis(samples.get(Math.max(0, rank - 1)));
+    }
+
+    /**
+     * Gets the median.
+     *
+     * @return the median, or null if there are no samples
+     */
+    public Duration getMedian() {
+        return getPercentile(MEDIAN);
+    }
+
+    /**
+     * Gets the 95th percentile.
+     *
+     * @return the 95th percentile, or null if there are no samples
+     */
+    public Duration getTail() {
+        return getPercentile(TAIL);
+    }
+
+    @Override
+    public String toString() {
+        var counts = new int[BUCKET_SECONDS.length + 1];
+        for (var sample : samples) {
+            var bucket = 0;
+            while (bucket < BUCKET_SECONDS.length && sample >= Duration.ofSeconds(BUCKET_SECONDS[bucket]).toMillis()) {
+                bucket++;
+            }
+            counts[bucket]++;
+        }
+        var maxCount = 1;
+        for (var count : counts) {
+            maxCount = Math.max(maxCount, count);
+        }
+        var report = new StringBuilder("%s: %d builds, p50 %s, p95 %s".formatted(name, samples.size(),
+                BuildTiming.format(getMedian()), BuildTiming.format(getTail())));
+        for (var bucket = 0; bucket < counts.length; bucket++) {
+            var label = bucket < BUCKET_SECONDS.length
+                    ? "< %d s".formatted(BUCKET_SECONDS[bucket])
+                    : ">= %d s".formatted(BUCKET_SECONDS[BUCKET_SECONDS.length - 1]);
+            report.append(("\n%9s | %-" + BAR_WIDTH + "s %d").formatted(label,
+                    "#".repeat(counts[bucket] * BAR_WIDTH / maxCount), counts[bucket]));
+        }
+        return report.toString();
+    }
+
+}
@@ -1,19 +1,32 @@
 package com.teamcity.api.config;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.function.Function;
 
 /**
  * Configuration utility class for loading and accessing application properties.
  * <p>
- * This class provides a thread-safe way to load and access configuration properties
- * from the config.properties file. It uses a ThreadLocal pattern to ensure that
- * each thread has its own instance of the configuration, preventing thread safety issues.
+ * The configuration is an immutable snapshot taken once per process, when the class is
+ * initialized. It is built from four layers, each overriding the previous one:
  * </p>
  *
+ * <ol>
+ *     <li>config-defaults.properties: framework defaults of every setting (cleanup, isolation,
+ *     scheduling, retries, seeding and other performance settings);</li>
+ *     <li>config.properties: settings of the environment under test (host, credentials, browser);</li>
+ *     <li>environment variables: TEAMCITY_ followed by the key in upper snake case, for example
+ *     TEAMCITY_SUPER_USER_TOKEN for superUserToken;</li>
+ *     <li>system properties with the same name as the key, for example {@code -DshardIndex=1}.</li>
+ * </ol>
+ *
  * <p>
- * The configuration is loaded once per thread and cached for the lifetime of that thread.
- * This provides good performance while maintaining thread safety.
+ * Only keys declared in one of the two files can be overridden, so every setting has a documented
+ * default. Reads do not lock or parse files: every getter looks up a final immutable map, and the
+ * snapshot is shared by all threads, including the virtual threads of API tests.
  * </p>
  *
  * @author TeamCity Testing Framework
@@ -22,76 +35,164 @@ import java.util.Properties;
  */
 public final class Config {
 
+    /**
+     * The name of the properties file with the framework defaults.
+     */
+    private static final String DEFAULT_PROPERTIES = "config-defaults.properties";
+
     /**
      * The name of the configuration properties file.
      */
     private static final String CONFIG_PROPERTIES = "config.properties";
 
     /**
-     * ThreadLocal instance of the Config class to ensure thread safety.
+     * Prefix of the environment variables that override configuration properties.
      */
-    private static final ThreadLocal<Config> CONFIG = ThreadLocal.withInitial(Config::new);
+    private static final String ENVIRONMENT_PREFIX = "TEAMCITY_";
 
     /**
-     * The properties object containing the loaded configuration.
+     * The process-wide configuration snapshot, loaded eagerly on class initialization.
      */
-    private final Properties properties;
+    private static final Config CONFIG = new Config(System.getenv(), System.getProperties());
 
     /**
-     * Private constructor to prevent instantiation.
-     * <p>
-     * This constructor loads the properties file during initialization.
-     * </p>
+     * The resolved configuration values by key.
      */
-    private Config() {
-        properties = new Properties();
-        loadProperties();
-    }
+    private final Map<String, String> values;
 
     /**
-     * Gets the current thread's Config instance.
+     * Private constructor to prevent instantiation.
      * <p>
-     * This method returns the Config instance associated with the current thread.
-     * If no instance exists, a new one will be created automatically.
+     * This constructor loads both properties files and applies the overrides.
      * </p>
      *
-     * @return the Config instance for the current thread
+     * @param environment the environment variables
+     * @param systemProperties the system properties
      */
-    private static Config getConfig() {
-        return CONFIG.get();
+    private Config(Map<String, String> environment, Properties systemProperties) {
+        var resolved = new HashMap<String, String>();
+        loadProperties(DEFAULT_PROPERTIES).forEach((key, value) -> resolved.put((String) key, (String) value));
+        loadProperties(CONFIG_PROPERTIES).forEach((key, value) -> resolved.put((String) key, (String) value));
+        resolved.replaceAll((key, value) -> {
+            var systemProperty = systemProperties.getProperty(key);
+            if (systemProperty != null) {
+                return systemProperty;
+            }
+            return environment.getOrDefault(toEnvironmentVariable(key), value);
+        });
+        values = Map.copyOf(resolved);
     }
 
     /**
      * Retrieves a property value by its key.
      * <p>
-     * This method provides access to configuration properties loaded from the
-     * config.properties file. It is thread-safe and can be called from any thread.
+     * This method provides access to the resolved configuration properties. It is
+     * thread-safe and can be called from any thread.
      * </p>
      *
      * @param key the property key to retrieve
      * @return the property value, or null if the key is not found
      */
     public static String getProperty(String key) {
-        return getConfig().properties.getProperty(key);
+        return CONFIG.values.get(key);
+    }
+
+    /**
+     * Retrieves a required integer property.
+     *
+     * @param key the property key to retrieve
+     * @return the property value
+     * @throws IllegalStateException if the property is missing or is not an integer
+     */
+    public static int getInt(String key) {
+        return getRequired(key, Integer::parseInt);
+    }
+
+    /**
+     * Retrieves a required long property.
+     *
+     * @param key the property key to retrieve
+     * @return the property value
+     * @throws IllegalStateException if the property is missing or is not a long
+     */
+    public static long getLong(String key) {
+        return getRequired(key, Long::parseLong);
+    }
+
+    /**
+     * Retrieves a required boolean property.
+     *
+     * @param key the property key to retrieve
+     * @return true if the property value is "true", ignoring case
+     * @throws IllegalStateException if the property is missing
+     */
+    public static boolean getBoolean(String key) {
+        return getRequired(key, Boolean::parseBoolean);
+    }
+
+    /**
+     * Retrieves a required enum property. The value is matched against constant names ignoring case.
+     *
+     * @param key the property key to retrieve
+     * @param enumClass the class of the enum
+     * @param <E> the type of the enum
+     * @return the enum constant
+     * @throws IllegalStateException if the property is missing or does not name a constant
+     */
+    public static <E extends Enum<E>> E getEnum(String key, Class<E> enumClass) {
+        return getRequired(key, value -> Enum.valueOf(enumClass, value.toUpperCase(Locale.ROOT)));
+    }
+
+    /**
+     * Retrieves a required property and converts it.
+     *
+     * @param key the property key to retrieve
+     * @param parser the conversion of the trimmed value
+     * @param <T> the type of the value
+     * @return the converted value
+     * @throws IllegalStateException if the property is missing, blank or cannot be converted
+     */
+    private static <T> T getRequired(String key, Function<String, T> parser) {
+        var value = getProperty(key);
+        if (value == null || value.isBlank()) {
+            throw new IllegalStateException("Missing configuration property " + key);
+        }
+        try {
+            return parser.apply(value.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid value of configuration property " + key + ": " + value, e);
+        }
+    }
+
+    /**
+     * Converts a property key to the name of the environment variable that overrides it.
+     *
+     * @param key the property key, in camel case
+     * @return the environment variable name, for example TEAMCITY_MAX_RETRY_COUNT for maxRetryCount
+     */
+    private static String toEnvironmentVariable(String key) {
+        return ENVIRONMENT_PREFIX + key.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT);
     }
 
     /**
-     * Loads properties from the config.properties file.
+     * Loads a properties file from the classpath.
      * <p>
-     * This method attempts to load the configuration file from the classpath.
-     * If the file cannot be loaded or is not found, an IllegalStateException
-     * will be thrown.
+     * If the file cannot be loaded or is not found, an IllegalStateException will be thrown.
      * </p>
      *
+     * @param name the name of the file
+     * @return the loaded properties
      * @throws IllegalStateException if the properties file cannot be loaded
      */
-    private void loadProperties() {
-        try (var inputStream = Config.class.getClassLoader().getResourceAsStream(CONFIG_PROPERTIES)) {
+    private static Properties loadProperties(String name) {
+        var properties = new Properties();
+        try (var inputStream = Config.class.getClassLoader().getResourceAsStream(name)) {
             properties.load(inputStream);
             // Убираем проверку на null (если файла не существует), это будет отлавливаться в блоке catch
         } catch (IOException | NullPointerException e) {
-            throw new IllegalStateException("Cannot load properties file", e);
+            throw new IllegalStateException("Cannot load properties file " + name, e);
         }
+        return properties;
     }
 
 }
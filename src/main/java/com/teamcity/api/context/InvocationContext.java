@@ -0,0 +1,155 @@
+package com.teamcity.api.context;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+
+/**
+ * Binds threads to the test invocation they are working for.
+ * <p>
+ * {@link InvocationScoped} values are keyed by the current invocation instead of the current thread,
+ * so a value set by a test is visible from every thread that works on behalf of that test. The test
+ * thread is bound by {@link #begin(Object)} (BaseTest uses the TestNG ITestResult as the invocation
+ * key), and child tasks inherit the binding explicitly through {@link #wrap(Callable)} and
+ * {@link #wrap(Runnable)}:
+ * </p>
+ *
+ * <pre>{@code
+ * CompletableFuture.runAsync(InvocationContext.wrap(() -> projectRequest.create(description)), executor);
+ * }</pre>
+ *
+ * <p>
+ * A thread that is not bound to any invocation keeps its values in a ThreadLocal of the holder, so
+ * code running outside of tests behaves as with a plain ThreadLocal, and its values go away with the
+ * thread instead of piling up under one key per thread (one per test with virtual threads). A task
+ * wrapped on an unbound thread runs unbound as well.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see InvocationScoped
+ */
+public final class InvocationContext {
+
+    /**
+     * Invocation the current thread is working for.
+     */
+    private static final ThreadLocal<Object> CURRENT_INVOCATION = new ThreadLocal<>();
+
+    /**
+     * All invocation-scoped holders, cleared when an invocation ends.
+     * <p>
+     * Holders are referenced weakly: a holder declared as an instance field of a test class goes away
+     * with the test instance instead of being kept, with its values, until the JVM exits. Guarded by
+     * the set itself.
+     * </p>
+     */
+    private static final Set<InvocationScoped<?>> SCOPES = Collections.newSetFromMap(new WeakHashMap<>());
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private InvocationContext() {
+    }
+
+    /**
+     * Binds the current thread to the invocation.
+     *
+     * @param invocation the invocation key, for example the TestNG ITestResult
+     */
+    public static void begin(Object invocation) {
+        CURRENT_INVOCATION.set(invocation);
+    }
+
+    /**
+     * Removes all values of the invocation and unbinds the current thread.
+     *
+     * @param invocation the invocation key passed to {@link #begin(Object)}
+     */
+    public static void end(Object invocation) {
+        // Хранилища копируются под блокировкой, а очищаются вне ее, чтобы не держать блокировку на время очистки
+        List<InvocationScoped<?>> scopes;
+        synchronized (SCOPES) {
+            scopes = List.copyOf(SCOPES);
+        }
+        scopes.forEach(scope -> scope.clear(invocation));
+        CURRENT_INVOCATION.remove();
+    }
+
+    /**
+     * Gets the key of the invocation the current thread is working for.
+     *
+     * @return the bound invocation, or null if the thread is not bound
+     */
+    public static Object current() {
+        return CURRENT_INVOCATION.get();
+    }
+
+    /**
+     * Wraps a task so that it runs in the invocation of the thread that created it.
+     *
+     * @param task the task to wrap
+     * @param <T> the result type of the task
+     * @return the task bound to the current invocation
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        var invocation = current();
+        return () -> {
+            var previous = CURRENT_INVOCATION.get();
+            bind(invocation);
+            try {
+                return task.call();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps a task so that it runs in the invocation of the thread that created it.
+     *
+     * @param task the task to wrap
+     * @return the task bound to the current invocation
+     */
+    public static Runnable wrap(Runnable task) {
+        var invocation = current();
+        return () -> {
+            var previous = CURRENT_INVOCATION.get();
+            bind(invocation);
+            try {
+                task.run();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    /**
+     * Registers a holder so that its values are removed when an invocation ends.
+     *
+     * @param scope the holder to register
+     */
+    static void register(InvocationScoped<?> scope) {
+        synchronized (SCOPES) {
+            SCOPES.add(scope);
+        }
+    }
+
+    /**
+     * Binds the current thread to the invocation, or unbinds it. Used to enter a wrapped task and to
+     * restore the binding the pool thread had before running it.
+     *
+     * @param invocation the invocation, or null to unbind the thread
+     */
+    private static void bind(Object invocation) {
+        if (invocation == null) {
+            CURRENT_INVOCATION.remove();
+        } else {
+            CURRENT_INVOCATION.set(invocation);
+        }
+    }
+
+}
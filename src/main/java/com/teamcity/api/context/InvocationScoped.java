@@ -0,0 +1,121 @@
+package com.teamcity.api.context;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Holder of a value per test invocation, a replacement of ThreadLocal for test state.
+ * <p>
+ * Values are stored in a concurrent map keyed by {@link InvocationContext#current()}, so every
+ * thread working for the same invocation sees the same value, and values of different invocations
+ * never mix. All values of an invocation are removed by {@link InvocationContext#end(Object)}.
+ * Threads that are not bound to an invocation keep their values in a ThreadLocal.
+ * </p>
+ *
+ * @param <T> the type of the stored value
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see InvocationContext
+ */
+public final class InvocationScoped<T> {
+
+    /**
+     * Values mapped to their invocations.
+     */
+    private final Map<Object, T> values = new ConcurrentHashMap<>();
+
+    /**
+     * Values of threads that are not bound to an invocation.
+     */
+    private final ThreadLocal<T> threadValues;
+
+    /**
+     * Supplier of the initial value, or null if there is no initial value.
+     */
+    private final Supplier<? extends T> initialValue;
+
+    /**
+     * Creates a holder without an initial value.
+     */
+    public InvocationScoped() {
+        this(null);
+    }
+
+    /**
+     * Creates a holder with the given initial value supplier.
+     *
+     * @param initialValue the supplier of the initial value, or null
+     */
+    private InvocationScoped(Supplier<? extends T> initialValue) {
+        this.initialValue = initialValue;
+        this.threadValues = initialValue == null ? new ThreadLocal<>() : ThreadLocal.withInitial(initialValue);
+        InvocationContext.register(this);
+    }
+
+    /**
+     * Creates a holder whose value is created by the supplier on first access within an invocation.
+     *
+     * @param initialValue the supplier of the initial value
+     * @param <T> the type of the stored value
+     * @return the new holder
+     */
+    public static <T> InvocationScoped<T> withInitial(Supplier<? extends T> initialValue) {
+        return new InvocationScoped<>(initialValue);
+    }
+
+    /**
+     * Gets the value of the current invocation.
+     *
+     * @return the value, or null if it was not set and there is no initial value
+     */
+    public T get() {
+        var invocation = InvocationContext.current();
+        if (invocation == null) {
+            return threadValues.get();
+        }
+        if (initialValue == null) {
+            return values.get(invocation);
+        }
+        return values.computeIfAbsent(invocation, key -> initialValue.get());
+    }
+
+    /**
+     * Sets the value of the current invocation.
+     *
+     * @param value the new value, null removes the value
+     */
+    public void set(T value) {
+        var invocation = InvocationContext.current();
+        if (value == null) {
+            remove();
+        } else if (invocation == null) {
+            threadValues.set(value);
+        } else {
+            values.put(invocation, value);
+        }
+    }
+
+    /**
+     * Removes the value of the current invocation.
+     */
+    public void remove() {
+        var invocation = InvocationContext.current();
+        if (invocation == null) {
+            threadValues.remove();
+        } else {
+            values.remove(invocation);
+        }
+    }
+
+    /**
+     * Removes the value of the given invocation.
+     *
+     * @param invocation the invocation key
+     */
+    void clear(Object invocation) {
+        values.remove(invocation);
+    }
+
+}
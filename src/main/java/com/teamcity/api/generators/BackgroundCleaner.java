@@ -0,0 +1,117 @@
+package com.teamcity.api.generators;
+
+import com.teamcity.api.config.Config;
+import com.teamcity.api.requests.Requesters;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Background service that deletes test data after the test thread has moved on.
+ * <p>
+ * When cleanupMode=async, {@link TestDataStorage#deleteCreatedEntities} hands its cleanup plan
+ * to this class and returns immediately, so TestNG can schedule the next test method without
+ * waiting for delete requests. Plans are executed on a dedicated pool of cleanupParallelism
+ * threads, and every plan sends its delete requests through the same bounded pool as synchronous
+ * cleanup does.
+ * </p>
+ *
+ * <p>
+ * At the end of the suite {@link #drain(Duration)} waits for the queue to become empty and
+ * reports both failed deletes and stragglers, i.e. entities whose plans did not finish in time.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see TestDataStorage
+ * @see CleanupPlan
+ */
+public final class BackgroundCleaner {
+
+    /**
+     * Pool executing submitted cleanup plans.
+     */
+    private static final ExecutorService PLAN_EXECUTOR = Executors.newFixedThreadPool(
+            Config.getInt("cleanupParallelism"),
+            Thread.ofPlatform().daemon().name("background-cleaner-", 0).factory());
+
+    /**
+     * Plans that have been submitted but have not finished yet.
+     */
+    private static final Map<CompletableFuture<Void>, CleanupPlan> PENDING_PLANS = new ConcurrentHashMap<>();
+
+    /**
+     * Failures of already finished plans.
+     */
+    private static final Queue<CleanupFailure> FAILURES = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private BackgroundCleaner() {
+    }
+
+    /**
+     * Queues the cleanup plan for background execution.
+     *
+     * @param cleanupPlan the plan to execute
+     * @param uncheckedSuperUser the requester to use for deletion operations
+     */
+    static void submit(CleanupPlan cleanupPlan, Requesters uncheckedSuperUser) {
+        var execution = new CompletableFuture<Void>();
+        PENDING_PLANS.put(execution, cleanupPlan);
+        PLAN_EXECUTOR.execute(() -> {
+            try {
+                FAILURES.addAll(cleanupPlan.execute(uncheckedSuperUser));
+            } catch (RuntimeException e) {
+                cleanupPlan.getEntities().forEach(entity ->
+                        FAILURES.add(new CleanupFailure(entity.endpoint(), entity.id(), e.toString())));
+            } finally {
+                PENDING_PLANS.remove(execution);
+                execution.complete(null);
+            }
+        });
+    }
+
+    /**
+     * Waits until all submitted plans are executed and returns everything that was not deleted.
+     * <p>
+     * Entities of plans that are still running after the timeout are reported as stragglers.
+     * Reported failures are removed from the queue, so each failure is returned only once.
+     * </p>
+     *
+     * @param timeout the maximum time to wait for the queue to drain
+     * @return the list of failed and straggling entities, empty if all test data was deleted
+     */
+    public static List<CleanupFailure> drain(Duration timeout) {
+        var pendingExecutions = CompletableFuture.allOf(PENDING_PLANS.keySet().toArray(CompletableFuture[]::new));
+        try {
+            pendingExecutions.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Незавершенные планы будут отражены в отчете как stragglers
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        var failures = new ArrayList<CleanupFailure>();
+        for (var failure = FAILURES.poll(); failure != null; failure = FAILURES.poll()) {
+            failures.add(failure);
+        }
+        PENDING_PLANS.values().forEach(plan -> plan.getEntities().forEach(entity ->
+                failures.add(new CleanupFailure(entity.endpoint(), entity.id(), "still pending after " + timeout))));
+        return failures;
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.teamcity.api.generators;
+
+import com.teamcity.api.enums.Endpoint;
+
+/**
+ * Describes a created entity that could not be deleted during test data cleanup.
+ * <p>
+ * Failures are collected by {@link TestDataStorage} instead of being ignored, so that
+ * leaked entities are visible in the report of the test that created them.
+ * </p>
+ *
+ * @param endpoint the endpoint of the entity
+ * @param id the ID of the entity
+ * @param reason the HTTP status or exception that prevented the deletion
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see TestDataStorage
+ */
+public record CleanupFailure(Endpoint endpoint, String id, String reason) {
+
+    @Override
+    public String toString() {
+        return "%s %s: %s".formatted(endpoint, id, reason);
+    }
+
+}
@@ -0,0 +1,359 @@
+package com.teamcity.api.generators;
+
+import com.teamcity.api.config.Config;
+import com.teamcity.api.enums.Endpoint;
+import com.teamcity.api.requests.Requesters;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Append-only, memory-mapped journal of created and deleted test entities.
+ * <p>
+ * {@link TestDataStorage} keeps created entities in memory only, so a cancelled CI job or a crashed
+ * JVM leaks everything that was created but not yet deleted. To prevent this, every registered
+ * entity is appended to a per-JVM journal file, and every confirmed delete is appended as well.
+ * Records are written straight into a memory-mapped region: the data is in the OS page cache as
+ * soon as the write returns and survives a JVM crash without a per-record fsync.
+ * </p>
+ *
+ * <p>
+ * Record format: type (1 byte: 1 - created, 2 - deleted), endpoint ordinal (1 byte),
+ * ID length (2 bytes), UTF-8 ID bytes. The unused tail of the file is zero-filled, so the first
+ * zero type byte marks the end of the journal.
+ * </p>
+ *
+ * <p>
+ * On the next suite start {@link #replayInterrupted(Requesters)} finds journals of JVMs that are
+ * no longer running, deletes every entity that was created but never confirmed deleted, and removes
+ * those journals. Journals of forks that are still running are left untouched.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see TestDataStorage
+ * @see CleanupPlan
+ */
+public final class CleanupJournal {
+
+    /**
+     * Extension of journal files.
+     */
+    private static final String JOURNAL_EXTENSION = ".journal";
+
+    /**
+     * Size of a single mapped region. The file grows region by region.
+     */
+    private static final int REGION_SIZE = 1024 * 1024;
+
+    /**
+     * Size of the record header: type, endpoint ordinal and ID length.
+     */
+    private static final int HEADER_SIZE = Byte.BYTES + Byte.BYTES + Short.BYTES;
+
+    /**
+     * Record type for a created entity.
+     */
+    private static final byte CREATED = 1;
+
+    /**
+     * Record type for a confirmed deleted entity.
+     */
+    private static final byte DELETED = 2;
+
+    /**
+     * Journal of the current JVM, opened on first use.
+     */
+    private static final CleanupJournal JOURNAL = new CleanupJournal(
+            Paths.get(Config.getProperty("cleanupJournalDir")), ProcessHandle.current());
+
+    /**
+     * Directory containing journals of all JVMs.
+     */
+    private final Path directory;
+
+    /**
+     * Journal file of the current JVM.
+     */
+    private final Path file;
+
+    /**
+     * Channel of the journal file, kept open to map new regions.
+     */
+    private FileChannel channel;
+
+    /**
+     * Currently mapped region.
+     */
+    private MappedByteBuffer region;
+
+    /**
+     * Absolute file position of the currently mapped region.
+     */
+    private long regionStart;
+
+    /**
+     * Whether the journal was closed. Records written after closing are ignored.
+     */
+    private boolean closed;
+
+    /**
+     * Creates the journal object for the given process. The file itself is created lazily.
+     *
+     * @param directory the directory containing journals
+     * @param process the process owning the journal
+     */
+    private CleanupJournal(Path directory, ProcessHandle process) {
+        this.directory = directory;
+        this.file = directory.resolve(getJournalName(process));
+    }
+
+    /**
+     * Gets the journal of the current JVM.
+     *
+     * @return the journal instance
+     */
+    public static CleanupJournal getJournal() {
+        return JOURNAL;
+    }
+
+    /**
+     * Appends a record about a created entity.
+     *
+     * @param endpoint the endpoint of the entity
+     * @param id the ID of the entity
+     */
+    public void recordCreated(Endpoint endpoint, String id) {
+        append(CREATED, endpoint, id);
+    }
+
+    /**
+     * Appends a record about a confirmed deleted entity.
+     *
+     * @param endpoint the endpoint of the entity
+     * @param id the ID of the entity
+     */
+    public void recordDeleted(Endpoint endpoint, String id) {
+        append(DELETED, endpoint, id);
+    }
+
+    /**
+     * Deletes entities leaked by interrupted runs and removes their journals.
+     * <p>
+     * Only journals of processes that are no longer alive are replayed. Entities that could not be
+     * deleted again are moved to the journal of the current JVM, so they are retried next time.
+     * </p>
+     *
+     * @param uncheckedSuperUser the requester to use for deletion operations
+     * @return the list of leaked entities that could not be deleted
+     */
+    public List<CleanupFailure> replayInterrupted(Requesters uncheckedSuperUser) {
+        var failures = new ArrayList<CleanupFailure>();
+        for (var journal : findInterruptedJournals()) {
+            var cleanupPlan = new CleanupPlan(readOutstanding(journal), new HashMap<>());
+            var journalFailures = cleanupPlan.execute(uncheckedSuperUser);
+            journalFailures.forEach(failure -> recordCreated(failure.endpoint(), failure.id()));
+            failures.addAll(journalFailures);
+            try {
+                Files.deleteIfExists(journal);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot delete replayed cleanup journal " + journal, e);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Closes the journal of the current JVM and removes it if nothing is left to delete.
+     * <p>
+     * If some entities are still outstanding (for example, background cleanup did not finish in time),
+     * the journal is kept and they are deleted by the next run.
+     * </p>
+     */
+    public synchronized void close() {
+        closed = true;
+        if (channel == null) {
+            return;
+        }
+        try {
+            region.force();
+            channel.close();
+            channel = null;
+            region = null;
+            if (readOutstanding(file).isEmpty()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close cleanup journal " + file, e);
+        }
+    }
+
+    /**
+     * Writes a single record into the mapped region, mapping the next region if needed.
+     *
+     * @param type the record type
+     * @param endpoint the endpoint of the entity
+     * @param id the ID of the entity
+     */
+    private synchronized void append(byte type, Endpoint endpoint, String id) {
+        if (closed) {
+            return;
+        }
+        var idBytes = id.getBytes(StandardCharsets.UTF_8);
+        var recordSize = HEADER_SIZE + idBytes.length;
+        try {
+            if (channel == null) {
+                Files.createDirectories(directory);
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                mapRegion(0);
+            } else if (region.remaining() < recordSize) {
+                // Записи идут в файле подряд: новый регион начинается ровно там, где закончилась последняя запись
+                mapRegion(regionStart + region.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write cleanup journal " + file, e);
+        }
+        // Тип пишется последним, чтобы читатель не увидел недописанную запись
+        var start = region.position();
+        region.position(start + Byte.BYTES);
+        region.put((byte) endpoint.ordinal())
+                .putShort((short) idBytes.length)
+                .put(idBytes);
+        region.put(start, type);
+    }
+
+    /**
+     * Maps a new region of the journal file starting at the given position.
+     *
+     * @param position the absolute file position of the new region
+     * @throws IOException if the region cannot be mapped
+     */
+    private void mapRegion(long position) throws IOException {
+        regionStart = position;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, position, REGION_SIZE);
+    }
+
+    /**
+     * Finds journals of processes that are no longer running.
+     *
+     * @return the list of journal files to replay
+     */
+    private List<Path> findInterruptedJournals() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (var journals = Files.list(directory)) {
+            return journals
+                    .filter(journal -> journal.getFileName().toString().endsWith(JOURNAL_EXTENSION))
+                    .filter(journal -> !journal.equals(file) && !isOwnerAlive(journal))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list cleanup journals in " + directory, e);
+        }
+    }
+
+    /**
+     * Reads a journal and returns entities that were created but never confirmed deleted.
+     *
+     * @param journal the journal file to read
+     * @return the list of outstanding entities in creation order
+     */
+    private static List<EntityRef> readOutstanding(Path journal) {
+        var outstanding = new LinkedHashSet<EntityRef>();
+        try (var journalChannel = FileChannel.open(journal, StandardOpenOption.READ)) {
+            ByteBuffer buffer = journalChannel.map(FileChannel.MapMode.READ_ONLY, 0, journalChannel.size());
+            while (buffer.remaining() >= HEADER_SIZE) {
+                var type = buffer.get();
+                if (type != CREATED && type != DELETED) {
+                    break;
+                }
+                var endpoint = Endpoint.values()[buffer.get()];
+                var idBytes = new byte[buffer.getShort()];
+                buffer.get(idBytes);
+                var entity = new EntityRef(endpoint, new String(idBytes, StandardCharsets.UTF_8));
+                if (type == CREATED) {
+                    outstanding.add(entity);
+                } else {
+                    outstanding.remove(entity);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read cleanup journal " + journal, e);
+        }
+        return new ArrayList<>(outstanding);
+    }
+
+    /**
+     * Returns the outstanding entities of journals that belong to running forks.
+     *
+     * @return the set of entities that other running JVMs are still going to delete
+     */
+    Set<EntityRef> getEntitiesOfRunningForks() {
+        if (!Files.isDirectory(directory)) {
+            return Set.of();
+        }
+        try (var journals = Files.list(directory)) {
+            var entities = new HashSet<EntityRef>();
+            journals.filter(journal -> journal.getFileName().toString().endsWith(JOURNAL_EXTENSION))
+                    .filter(journal -> !journal.equals(file) && isOwnerAlive(journal))
+                    .forEach(journal -> entities.addAll(readOutstanding(journal)));
+            return entities;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list cleanup journals in " + directory, e);
+        }
+    }
+
+    /**
+     * Checks whether the process that wrote the journal is still running.
+     * <p>
+     * The journal name contains both the PID and the process start time, so a reused PID
+     * of a different process is not mistaken for the original owner.
+     * </p>
+     *
+     * @param journal the journal file
+     * @return true if the owner process is alive
+     */
+    private static boolean isOwnerAlive(Path journal) {
+        var name = journal.getFileName().toString();
+        var owner = name.substring(0, name.length() - JOURNAL_EXTENSION.length()).split("-");
+        if (owner.length != 2) {
+            return false;
+        }
+        return ProcessHandle.of(Long.parseLong(owner[0]))
+                .filter(ProcessHandle::isAlive)
+                .map(CleanupJournal::getJournalName)
+                .filter(name::equals)
+                .isPresent();
+    }
+
+    /**
+     * Builds the journal file name for the given process.
+     *
+     * @param process the process owning the journal
+     * @return the journal file name
+     */
+    private static String getJournalName(ProcessHandle process) {
+        var startTime = process.info().startInstant()
+                .map(Instant::toEpochMilli)
+                .orElse(0L);
+        return process.pid() + "-" + startTime + JOURNAL_EXTENSION;
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.teamcity.api.generators;
+
+import com.teamcity.api.config.Config;
+import com.teamcity.api.enums.Endpoint;
+import com.teamcity.api.requests.Requesters;
+import com.teamcity.api.requests.withoutS.Requester;
+import org.apache.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Immutable snapshot of the entities that have to be deleted after a test.
+ * <p>
+ * The plan is created by {@link TestDataStorage} and contains root entities, which are deleted
+ * explicitly, and child entities together with their ancestors, which are deleted by the server
+ * together with the root. If a root could not be deleted, its children are deleted explicitly.
+ * </p>
+ *
+ * <p>
+ * Deletion goes through the endpoints in the Endpoint enum order. All IDs of a single endpoint are
+ * deleted concurrently on a shared pool bounded by the cleanupParallelism property, and the next
+ * endpoint is processed only after every delete request of the previous one has completed.
+ * </p>
+ *
+ * <p>
+ * Every entity that was deleted, explicitly or by cascade, is marked as deleted in the
+ * {@link CleanupJournal}.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see TestDataStorage
+ * @see BackgroundCleaner
+ * @see CleanupJournal
+ */
+final class CleanupPlan {
+
+    /**
+     * Shared pool for delete requests.
+     * <p>
+     * The pool is shared by all test threads, so the total number of concurrent delete requests
+     * sent to the server never exceeds the cleanupParallelism property. Daemon threads are used
+     * so that the pool does not keep the JVM alive after the suite is finished.
+     * </p>
+     */
+    private static final ExecutorService CLEANUP_EXECUTOR = Executors.newFixedThreadPool(
+            Config.getInt("cleanupParallelism"),
+            Thread.ofPlatform().daemon().name("test-data-cleanup-", 0).factory());
+
+    /**
+     * Entities without tracked ancestors.
+     */
+    private final List<EntityRef> roots;
+
+    /**
+     * Entities with tracked ancestors, mapped to all their recorded ancestors.
+     */
+    private final Map<EntityRef, List<EntityRef>> childAncestors;
+
+    CleanupPlan(List<EntityRef> roots, Map<EntityRef, List<EntityRef>> childAncestors) {
+        this.roots = List.copyOf(roots);
+        this.childAncestors = Map.copyOf(childAncestors);
+    }
+
+    /**
+     * Returns every entity covered by this plan, both roots and children.
+     *
+     * @return the list of entities
+     */
+    List<EntityRef> getEntities() {
+        return Stream.concat(roots.stream(), childAncestors.keySet().stream()).toList();
+    }
+
+    /**
+     * Deletes the entities of this plan.
+     *
+     * @param uncheckedSuperUser the requester to use for deletion operations
+     * @return the list of entities that could not be deleted, empty if cleanup was successful
+     */
+    List<CleanupFailure> execute(Requesters uncheckedSuperUser) {
+        var failures = deleteByLevels(uncheckedSuperUser, roots);
+        // Если корень удалить не удалось, то каскадного удаления не было, поэтому удаляем его потомков явно
+        var failedRoots = failures.stream()
+                .map(failure -> new EntityRef(failure.endpoint(), failure.id()))
+                .collect(Collectors.toSet());
+        var orphans = childAncestors.entrySet().stream()
+                .filter(child -> child.getValue().stream().anyMatch(failedRoots::contains))
+                .map(Map.Entry::getKey)
+                .toList();
+        failures.addAll(deleteByLevels(uncheckedSuperUser, orphans));
+
+        // Всё, что не попало в список ошибок, удалено явно или каскадно вместе с корнем
+        var failedEntities = failures.stream()
+                .map(failure -> new EntityRef(failure.endpoint(), failure.id()))
+                .collect(Collectors.toSet());
+        getEntities().stream()
+                .filter(entity -> !failedEntities.contains(entity))
+                .forEach(entity -> CleanupJournal.getJournal().recordDeleted(entity.endpoint(), entity.id()));
+        return failures;
+    }
+
+    /**
+     * Deletes the given entities level by level in the Endpoint enum order.
+     *
+     * @param uncheckedSuperUser the requester to use for deletion operations
+     * @param entities the entities to delete
+     * @return the list of entities that could not be deleted
+     */
+    private static List<CleanupFailure> deleteByLevels(Requesters uncheckedSuperUser,
+                                                       Collection<EntityRef> entities) {
+        var levels = new EnumMap<Endpoint, List<String>>(Endpoint.class);
+        entities.forEach(entity -> levels.computeIfAbsent(entity.endpoint(), key -> new ArrayList<>())
+                .add(entity.id()));
+
+        var failures = new ArrayList<CleanupFailure>();
+        levels.forEach((endpoint, ids) -> {
+            var request = uncheckedSuperUser.getRequest(endpoint);
+            // Сначала отправляем все запросы уровня, затем дожидаемся их всех, и только потом переходим к следующему
+            var deletions = ids.stream()
+                    .map(id -> CompletableFuture.supplyAsync(() -> deleteEntity(request, endpoint, id),
+                            CLEANUP_EXECUTOR))
+                    .toList();
+            deletions.forEach(deletion -> deletion.join().ifPresent(failures::add));
+        });
+        return failures;
+    }
+
+    /**
+     * Sends a single delete request and checks its outcome.
+     *
+     * @param request the unchecked requester for the entity endpoint
+     * @param endpoint the endpoint of the entity
+     * @param id the ID of the entity to delete
+     * @return a cleanup failure if the entity was not deleted, or an empty Optional otherwise
+     */
+    private static Optional<CleanupFailure> deleteEntity(Requester request, Endpoint endpoint, String id) {
+        try {
+            var statusCode = request.delete(id).getStatusCode();
+            // 404 означает, что тест уже сам удалил сущность, это не ошибка очистки
+            if (statusCode < HttpStatus.SC_MULTIPLE_CHOICES || statusCode == HttpStatus.SC_NOT_FOUND) {
+                return Optional.empty();
+            }
+            return Optional.of(new CleanupFailure(endpoint, id, "HTTP " + statusCode));
+        } catch (RuntimeException e) {
+            return Optional.of(new CleanupFailure(endpoint, id, e.toString()));
+        }
+    }
+
+}
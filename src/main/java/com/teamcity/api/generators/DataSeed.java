@@ -0,0 +1,203 @@
+package com.teamcity.api.generators;
+
+import com.teamcity.api.config.Config;
+import com.teamcity.api.context.InvocationScoped;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Seeds of the random test data, derived from the suite seed and the test identity.
+ * <p>
+ * Every test invocation gets its own Random, seeded from the suite seed, the test class name, the
+ * method name and the data provider parameters. The derivation does not depend on the execution
+ * order, the thread or the JVM, so rerunning a test with the same suite seed regenerates exactly the
+ * same TestData, and tests running on different shards draw from different sequences without any
+ * coordination.
+ * </p>
+ *
+ * <p>
+ * Repeated invocations of the same test in one run (invocationCount, retries) get the method seed mixed
+ * with the ordinal of the invocation, so they do not regenerate the ids of entities that already exist
+ * on the server. The first invocation of a test always uses the plain method seed, which makes a single
+ * failed test reproducible; repeated invocations are numbered in the order they start.
+ * </p>
+ *
+ * <p>
+ * The suite seed is taken from the dataSeed system property or config property. If neither is set,
+ * a random one is chosen; it is attached to every test in the Allure report, so a failed run can be
+ * reproduced with {@code -DdataSeed=<seed>}. Code running outside of a test invocation (for example,
+ * data providers) uses a per-thread Random seeded from the suite seed and the thread name.
+ * </p>
+ *
+ * <p>
+ * Generation is deterministic as long as the test generates data sequentially; values drawn by
+ * concurrent child tasks of the same test are distributed between them in a non-deterministic order.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see RandomData
+ */
+public final class DataSeed {
+
+    /**
+     * Name of the system and config property containing the suite seed.
+     */
+    private static final String DATA_SEED_PROPERTY = "dataSeed";
+
+    /**
+     * Seed of the whole suite.
+     */
+    private static final long SUITE_SEED = readSuiteSeed();
+
+    /**
+     * Random of the current test invocation.
+     */
+    private static final InvocationScoped<Random> INVOCATION_RANDOM = new InvocationScoped<>();
+
+    /**
+     * Seed of the current test invocation.
+     */
+    private static final InvocationScoped<Long> INVOCATION_SEED = new InvocationScoped<>();
+
+    /**
+     * Number of invocations started in this run, by method seed.
+     */
+    private static final Map<Long, AtomicInteger> INVOCATION_COUNTS = new ConcurrentHashMap<>();
+
+    /**
+     * Random of threads that are not bound to a test invocation.
+     */
+    // Виртуальные потоки по умолчанию безымянные, поэтому различаем потоки по id, а не по имени
+    private static final ThreadLocal<Random> THREAD_RANDOM = ThreadLocal.withInitial(() ->
+            new Random(mix(SUITE_SEED, Thread.currentThread().threadId())));
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private DataSeed() {
+    }
+
+    /**
+     * Gets the seed of the whole suite.
+     *
+     * @return the suite seed
+     */
+    public static long getSuiteSeed() {
+        return SUITE_SEED;
+    }
+
+    /**
+     * Derives the seed of a test class.
+     *
+     * @param className the fully qualified name of the test class
+     * @return the class seed
+     */
+    public static long getClassSeed(String className) {
+        return mix(SUITE_SEED, hash(className));
+    }
+
+    /**
+     * Derives the seed of a test method invocation.
+     *
+     * @param className the fully qualified name of the test class
+     * @param methodName the name of the test method
+     * @param parameters the data provider parameters of the invocation
+     * @return the method seed
+     */
+    public static long getMethodSeed(String className, String methodName, Object... parameters) {
+        return mix(getClassSeed(className), hash(methodName + Arrays.deepToString(parameters)));
+    }
+
+    /**
+     * Derives the seed of one invocation of a test method.
+     *
+     * @param methodSeed the method seed
+     * @param invocation the ordinal of the invocation in the run, starting from 0
+     * @return the method seed for the first invocation, a seed derived from it for the next ones
+     */
+    public static long getInvocationSeed(long methodSeed, int invocation) {
+        return invocation == 0 ? methodSeed : mix(methodSeed, invocation);
+    }
+
+    /**
+     * Seeds the random data of the current test invocation. Must be called after the invocation is bound.
+     * Every call for the same method and parameters counts as the next invocation: invocationCount
+     * invocations and retries of a test draw different data.
+     *
+     * @param className the fully qualified name of the test class
+     * @param methodName the name of the test method
+     * @param parameters the data provider parameters of the invocation
+     * @return the invocation seed
+     */
+    public static long begin(String className, String methodName, Object... parameters) {
+        var methodSeed = getMethodSeed(className, methodName, parameters);
+        // Номер вызова считаем сами, а не берем из TestNG: так одинаково учитываются и invocationCount, и ретраи,
+        // в том числе вызовы, стартующие параллельно
+        var invocation = INVOCATION_COUNTS.computeIfAbsent(methodSeed, seed -> new AtomicInteger()).getAndIncrement();
+        var invocationSeed = getInvocationSeed(methodSeed, invocation);
+        INVOCATION_SEED.set(invocationSeed);
+        INVOCATION_RANDOM.set(new Random(invocationSeed));
+        return invocationSeed;
+    }
+
+    /**
+     * Gets the seed of the current test invocation.
+     *
+     * @return the invocation seed, or null if the invocation was not seeded
+     */
+    public static Long getInvocationSeed() {
+        return INVOCATION_SEED.get();
+    }
+
+    /**
+     * Gets the Random to draw test data from.
+     *
+     * @return the Random of the current invocation, or of the current thread outside of invocations
+     */
+    static Random getRandom() {
+        var random = INVOCATION_RANDOM.get();
+        return random != null ? random : THREAD_RANDOM.get();
+    }
+
+    /**
+     * Reads the suite seed from the system property or the config, or chooses a random one.
+     *
+     * @return the suite seed
+     */
+    private static long readSuiteSeed() {
+        var seed = Config.getProperty(DATA_SEED_PROPERTY);
+        return seed == null || seed.isBlank() ? new SecureRandom().nextLong() : Long.parseLong(seed.trim());
+    }
+
+    /**
+     * Combines a seed with a value into a new, well-distributed seed.
+     *
+     * @param seed the parent seed
+     * @param value the value to mix in
+     * @return the derived seed
+     */
+    private static long mix(long seed, long value) {
+        return new SplittableRandom(seed ^ value).nextLong();
+    }
+
+    /**
+     * Hashes a string to 64 bits. Unlike String.hashCode, the result is well-distributed over 64 bits.
+     *
+     * @param value the string to hash
+     * @return the hash
+     */
+    private static long hash(String value) {
+        return UUID.nameUUIDFromBytes(value.getBytes(StandardCharsets.UTF_8)).getMostSignificantBits();
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.teamcity.api.generators;
+
+import com.teamcity.api.enums.Endpoint;
+
+import java.util.Optional;
+
+/**
+ * Reference to a created entity: its endpoint and ID.
+ * <p>
+ * This is the unit of tracking in {@link TestDataStorage} and of deletion in {@link CleanupPlan}.
+ * </p>
+ *
+ * @param endpoint the endpoint of the entity
+ * @param id the ID of the entity
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see TestDataStorage
+ */
+record EntityRef(Endpoint endpoint, String id) {
+
+    /**
+     * Creates a reference if the ID is known.
+     *
+     * @param endpoint the endpoint of the entity
+     * @param id the ID of the entity, may be null
+     * @return the reference, or an empty Optional if the ID is null
+     */
+    static Optional<EntityRef> of(Endpoint endpoint, String id) {
+        return id != null ? Optional.of(new EntityRef(endpoint, id)) : Optional.empty();
+    }
+
+}
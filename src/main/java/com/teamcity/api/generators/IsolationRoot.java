@@ -0,0 +1,222 @@
+package com.teamcity.api.generators;
+
+import com.teamcity.api.config.Config;
+import com.teamcity.api.context.InvocationScoped;
+import com.teamcity.api.enums.Endpoint;
+import com.teamcity.api.models.NewProjectDescription;
+import com.teamcity.api.models.Project;
+import com.teamcity.api.requests.Requesters;
+import com.teamcity.api.requests.withoutS.Requester;
+import com.teamcity.api.spec.RequestSpecs;
+import org.apache.http.HttpStatus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Parent project that isolates the projects generated by a test worker or a single test method.
+ * <p>
+ * By default every generated project is created directly under _Root, and cleanup has to delete
+ * each of them. With the isolationMode property set to thread or method, {@link TestDataGenerator}
+ * places every generated {@link NewProjectDescription} under an isolation root project instead:
+ * </p>
+ *
+ * <ul>
+ *     <li>thread: one root per concurrently running test, created on first use and deleted once at the end
+ *     of the suite by {@link #deleteSuiteRoots(Requesters)}. A test leases a free root and returns it when
+ *     its cleanup is done, so the number of roots equals the peak parallelism whether tests run on pooled
+ *     worker threads or on a new virtual thread each. Entities created inside it are not deleted after
+ *     each test, the server removes them together with the root;</li>
+ *     <li>method: one root per test method, tracked by {@link TestDataStorage} like any other project,
+ *     so the cleanup of a test is a single DELETE of its root.</li>
+ * </ul>
+ *
+ * <p>
+ * Root projects are named with the {@link RandomData#TEST_PREFIX} prefix and are written to the
+ * {@link CleanupJournal}, so leftovers are handled by the journal replay and by the orphan sweeper.
+ * {@link #getAffectedProjectLocator()} returns a locator that restricts searches to the current root.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see TestDataGenerator
+ * @see TestDataStorage
+ */
+public final class IsolationRoot {
+
+    /**
+     * Locator of the TeamCity root project.
+     */
+    private static final String ROOT_PROJECT_LOCATOR = "_Root";
+
+    /**
+     * Isolation mode from the isolationMode property.
+     */
+    private static final Mode MODE = Config.getEnum("isolationMode", Mode.class);
+
+    /**
+     * Isolation root leased by the current test invocation (thread mode).
+     */
+    private static final InvocationScoped<Project> LEASED_ROOT = new InvocationScoped<>();
+
+    /**
+     * Thread mode roots not leased by any running test.
+     */
+    private static final Queue<Project> FREE_ROOTS = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Isolation root of the current test invocation (method mode).
+     */
+    private static final InvocationScoped<Project> METHOD_ROOT = new InvocationScoped<>();
+
+    /**
+     * Roots created in thread mode, deleted at the end of the suite.
+     */
+    private static final Queue<EntityRef> SUITE_ROOTS = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Entities created inside thread mode roots, mapped to their ancestors.
+     */
+    private static final Map<EntityRef, List<EntityRef>> ADOPTED_ENTITIES = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private IsolationRoot() {
+    }
+
+    /**
+     * Gets the parent project for generated projects, creating the isolation root if needed.
+     *
+     * @return the isolation root project, or an empty Optional if isolation is disabled
+     */
+    public static Optional<Project> getParentProject() {
+        return switch (MODE) {
+            case NONE -> Optional.empty();
+            case THREAD -> Optional.of(getOrCreate(LEASED_ROOT::get, LEASED_ROOT::set));
+            case METHOD -> Optional.of(getOrCreate(METHOD_ROOT::get, METHOD_ROOT::set));
+        };
+    }
+
+    /**
+     * Builds a locator that restricts a search to the current isolation root and its subprojects.
+     * <p>
+     * Without isolation the locator covers the whole server, so it can be used unconditionally.
+     * </p>
+     *
+     * @return the affectedProject locator
+     */
+    public static String getAffectedProjectLocator() {
+        var projectId = getParentProject().map(Project::getId).orElse(ROOT_PROJECT_LOCATOR);
+        return "affectedProject:(id:" + projectId + ")";
+    }
+
+    /**
+     * Deletes all thread mode roots together with the entities created inside them.
+     *
+     * @param uncheckedSuperUser the requester to use for deletion operations
+     * @return the list of entities that could not be deleted
+     */
+    public static List<CleanupFailure> deleteSuiteRoots(Requesters uncheckedSuperUser) {
+        var roots = List.copyOf(SUITE_ROOTS);
+        SUITE_ROOTS.clear();
+        FREE_ROOTS.clear();
+        var adoptedEntities = Map.copyOf(ADOPTED_ENTITIES);
+        ADOPTED_ENTITIES.clear();
+        return new CleanupPlan(roots, adoptedEntities).execute(uncheckedSuperUser);
+    }
+
+    /**
+     * Checks whether the entity is a thread mode root that outlives the current test.
+     *
+     * @param entity the entity to check
+     * @return true if the entity is deleted at the end of the suite
+     */
+    static boolean isSuiteRoot(EntityRef entity) {
+        return SUITE_ROOTS.contains(entity);
+    }
+
+    /**
+     * Hands over an entity created inside a thread mode root, so it is deleted together with the root.
+     *
+     * @param entity the entity to adopt
+     * @param ancestors all recorded ancestors of the entity, including the root
+     */
+    static void adopt(EntityRef entity, List<EntityRef> ancestors) {
+        ADOPTED_ENTITIES.put(entity, ancestors);
+    }
+
+    /**
+     * Forgets the root of the finished test in method mode (its deletion is done by the test cleanup)
+     * and returns the leased root to the pool in thread mode.
+     */
+    static void releaseInvocationRoot() {
+        METHOD_ROOT.remove();
+        var leasedRoot = LEASED_ROOT.get();
+        if (leasedRoot != null) {
+            LEASED_ROOT.remove();
+            FREE_ROOTS.add(leasedRoot);
+        }
+    }
+
+    /**
+     * Gets the root from the holder, creating it on first use.
+     *
+     * @param getter the getter of the holder
+     * @param setter the setter of the holder
+     * @return the isolation root project
+     */
+    private static Project getOrCreate(Supplier<Project> getter, Consumer<Project> setter) {
+        var root = getter.get();
+        if (root == null) {
+            // В режиме thread сначала берем свободный корень, освобожденный завершившимся тестом
+            root = MODE == Mode.THREAD ? FREE_ROOTS.poll() : null;
+            if (root == null) {
+                root = createRoot();
+            }
+            setter.accept(root);
+        }
+        return root;
+    }
+
+    /**
+     * Creates a new root project under _Root and registers it for cleanup.
+     *
+     * @return the created root project
+     */
+    private static Project createRoot() {
+        var id = RandomData.getUniqueString();
+        var description = NewProjectDescription.builder().id(id).name(id).build();
+        var response = new Requester(RequestSpecs.superUserSpec(), Endpoint.PROJECTS).create(description);
+        if (response.getStatusCode() != HttpStatus.SC_OK) {
+            throw new IllegalStateException("Cannot create isolation root project: HTTP "
+                    + response.getStatusCode() + " " + response.asString());
+        }
+        if (MODE == Mode.METHOD) {
+            // Корень метода удаляется вместе с остальными сущностями теста, дочерние проекты удалятся каскадно
+            TestDataStorage.getStorage().addCreatedEntity(Endpoint.PROJECTS, id);
+        } else {
+            CleanupJournal.getJournal().recordCreated(Endpoint.PROJECTS, id);
+            SUITE_ROOTS.add(new EntityRef(Endpoint.PROJECTS, id));
+        }
+        // Locator нужен UI тестам, которые открывают страницу создания проекта внутри родителя
+        return new Project(id, id, id);
+    }
+
+    /**
+     * Supported values of the isolationMode property.
+     */
+    private enum Mode {
+        NONE,
+        THREAD,
+        METHOD
+    }
+
+}
@@ -0,0 +1,338 @@
+package com.teamcity.api.generators;
+
+import com.teamcity.api.config.Config;
+import com.teamcity.api.enums.Endpoint;
+import com.teamcity.api.requests.Requesters;
+import com.teamcity.api.requests.withoutS.Requester;
+import com.teamcity.api.spec.RequestSpecs;
+import io.restassured.response.Response;
+import org.apache.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Finds and deletes test entities that are not tracked by any running test.
+ * <p>
+ * {@link CleanupJournal} only knows about entities registered in {@link TestDataStorage}. Entities
+ * created through UI flows, failed creates and leftovers of runs without a journal are found by
+ * the {@link RandomData#TEST_PREFIX} prefix instead: projects, build types and users are paged
+ * through with a locator that matches the prefix on the server, and the result is filtered by the
+ * prefix on the client as well.
+ * </p>
+ *
+ * <p>
+ * Only top-most entities are deleted: a build type inside a matching project and a project inside
+ * another matching project are removed by the server together with their parent. The deletion
+ * itself is done by {@link CleanupPlan}, i.e. in the Endpoint enum order with a bounded number of
+ * concurrent requests per endpoint.
+ * </p>
+ *
+ * <p>
+ * Entities listed in journals of running forks are protected, as well as every project that
+ * contains a protected entity, so the sweeper can be run while other test JVMs are working.
+ * </p>
+ *
+ * <p>
+ * Journals only cover forks on this machine and entities registered in TestDataStorage, so a
+ * test_ entity of a suite running on another CI runner, or one created through the UI by a local
+ * fork, looks exactly like an orphan. TeamCity does not expose the creation time of projects, build
+ * types and users, therefore the sweeper records when it first saw each matching entity (in
+ * orphans-first-seen.properties of the cleanupJournalDir) and deletes only entities first seen at
+ * least orphanMinAgeMinutes ago. Younger entities are protected like the ones of running forks. An
+ * entity is thus deleted by the first sweep that runs orphanMinAgeMinutes after it was first found;
+ * on CI, the journal directory has to be cached between runs for the sweep to delete anything.
+ * </p>
+ *
+ * <p>
+ * The sweeper is run at suite start according to the orphanSweepMode property, or on demand:
+ * {@code mvn compile exec:java -Dexec.mainClass=com.teamcity.api.generators.OrphanSweeper
+ * -Dexec.args=--delete} (without --delete only a dry-run report is printed).
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see CleanupJournal
+ * @see CleanupPlan
+ * @see SweepReport
+ */
+public final class OrphanSweeper {
+
+    /**
+     * Number of entities requested per page.
+     */
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * Server-side locator matching names that start with the test prefix.
+     */
+    private static final String NAME_LOCATOR = "name:(value:" + RandomData.TEST_PREFIX + ",matchType:starts-with)";
+
+    /**
+     * Name of the file with the times the matching entities were first seen, in the cleanup journal directory.
+     */
+    private static final String FIRST_SEEN_FILE = "orphans-first-seen.properties";
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private OrphanSweeper() {
+    }
+
+    /**
+     * Runs the sweeper from the command line.
+     *
+     * @param args --delete to delete the found entities, otherwise only a dry-run report is printed
+     */
+    public static void main(String[] args) {
+        var dryRun = !List.of(args).contains("--delete");
+        System.out.println(sweep(new Requesters(RequestSpecs.superUserSpec()), dryRun));
+    }
+
+    /**
+     * Finds test entities that are not owned by running forks and deletes them.
+     *
+     * @param uncheckedSuperUser the requester to use for search and deletion operations
+     * @param dryRun if true, entities are only listed in the report
+     * @return the sweep report
+     */
+    public static SweepReport sweep(Requesters uncheckedSuperUser, boolean dryRun) {
+        return sweep(uncheckedSuperUser, dryRun, Paths.get(Config.getProperty("cleanupJournalDir"), FIRST_SEEN_FILE),
+                Duration.ofMinutes(Config.getLong("orphanMinAgeMinutes")), Instant.now());
+    }
+
+    /**
+     * Finds test entities that are not owned by running forks and are old enough, and deletes them.
+     *
+     * @param uncheckedSuperUser the requester to use for search and deletion operations
+     * @param dryRun if true, entities are only listed in the report
+     * @param firstSeenFile the file with the times the matching entities were first seen
+     * @param minAge the minimum time since an entity was first seen for it to be deleted
+     * @param now the current time
+     * @return the sweep report
+     */
+    private static SweepReport sweep(Requesters uncheckedSuperUser, boolean dryRun, Path firstSeenFile, Duration minAge,
+                                     Instant now) {
+        var protectedEntities = new HashSet<>(CleanupJournal.getJournal().getEntitiesOfRunningForks());
+
+        // id -> родительская сущность (parentProjectId у проекта, projectId у билд конфигурации)
+        var projects = findTestEntities(uncheckedSuperUser.getRequest(Endpoint.PROJECTS), "project",
+                "name", "parentProjectId");
+        var buildTypes = findTestEntities(uncheckedSuperUser.getRequest(Endpoint.BUILD_TYPES), "buildType",
+                "name", "projectId");
+        var users = findTestEntities(uncheckedSuperUser.getRequest(Endpoint.USERS), "user",
+                "username", null);
+
+        // Сущность может принадлежать сьюту на другом раннере или UI флоу без журнала: удаляем только давно замеченные
+        var found = new ArrayList<EntityRef>();
+        projects.keySet().forEach(id -> found.add(new EntityRef(Endpoint.PROJECTS, id)));
+        buildTypes.keySet().forEach(id -> found.add(new EntityRef(Endpoint.BUILD_TYPES, id)));
+        users.keySet().forEach(id -> found.add(new EntityRef(Endpoint.USERS, id)));
+        var recentEntities = updateFirstSeen(firstSeenFile, found, now.minus(minAge), now);
+        protectedEntities.addAll(recentEntities);
+
+        // Проект нельзя удалять, если внутри него (на любом уровне) есть сущность работающего форка
+        var blockedProjects = new HashSet<String>();
+        protectedEntities.forEach(entity -> {
+            var projectId = switch (entity.endpoint()) {
+                case PROJECTS -> entity.id();
+                case BUILD_TYPES -> buildTypes.get(entity.id());
+                default -> null;
+            };
+            while (projectId != null && blockedProjects.add(projectId)) {
+                projectId = projects.get(projectId);
+            }
+        });
+
+        var deletableProjects = new HashSet<>(projects.keySet());
+        deletableProjects.removeAll(blockedProjects);
+        var roots = new ArrayList<EntityRef>();
+        var cascaded = 0;
+        var protectedCount = 0;
+        for (var project : projects.keySet()) {
+            if (!deletableProjects.contains(project)) {
+                protectedCount++;
+            } else if (deletableProjects.contains(projects.get(project))) {
+                cascaded++;
+            } else {
+                roots.add(new EntityRef(Endpoint.PROJECTS, project));
+            }
+        }
+        for (var buildType : buildTypes.keySet()) {
+            if (protectedEntities.contains(new EntityRef(Endpoint.BUILD_TYPES, buildType))) {
+                protectedCount++;
+            } else if (deletableProjects.contains(buildTypes.get(buildType))) {
+                cascaded++;
+            } else {
+                roots.add(new EntityRef(Endpoint.BUILD_TYPES, buildType));
+            }
+        }
+        for (var user : users.keySet()) {
+            if (protectedEntities.contains(new EntityRef(Endpoint.USERS, user))) {
+                protectedCount++;
+            } else {
+                roots.add(new EntityRef(Endpoint.USERS, user));
+            }
+        }
+
+        var failures = dryRun
+                ? List.<CleanupFailure>of()
+                : new CleanupPlan(roots, Map.of()).execute(uncheckedSuperUser);
+        return new SweepReport(dryRun, roots.stream().map(root -> root.endpoint() + " " + root.id()).toList(),
+                cascaded, protectedCount, recentEntities.size(), failures);
+    }
+
+    /**
+     * Records the first-seen time of newly found entities and forgets entities that are gone.
+     *
+     * @param file the file with the first-seen times
+     * @param found the matching entities found by this sweep
+     * @param threshold entities first seen after this time are too recent to be deleted
+     * @param now the current time, recorded for newly found entities
+     * @return the found entities that are too recent to be deleted
+     */
+    private static Set<EntityRef> updateFirstSeen(Path file, List<EntityRef> found, Instant threshold,
+                                                  Instant now) {
+        var stored = new Properties();
+        try {
+            if (Files.exists(file)) {
+                try (var reader = Files.newBufferedReader(file)) {
+                    stored.load(reader);
+                }
+            }
+            var updated = new Properties();
+            var recent = new HashSet<EntityRef>();
+            for (var entity : found) {
+                var key = entity.endpoint() + " " + entity.id();
+                var firstSeen = Instant.parse(stored.getProperty(key, now.toString()));
+                updated.setProperty(key, firstSeen.toString());
+                if (firstSeen.isAfter(threshold)) {
+                    recent.add(entity);
+                }
+            }
+            // Пишем во временный файл и переносим его, чтобы параллельный запуск не прочитал файл наполовину
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            var temporary = Files.createTempFile(file.toAbsolutePath().getParent(), FIRST_SEEN_FILE, ".tmp");
+            try (var writer = Files.newBufferedWriter(temporary)) {
+                updated.store(writer, "Test entities found by the orphan sweeper, with the time they were first seen");
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return recent;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot update first-seen times of orphans in " + file, e);
+        }
+    }
+
+    /**
+     * Pages through the endpoint and collects entities whose ID or name starts with the test prefix.
+     * <p>
+     * If the server rejects a locator (older versions do not support every dimension for every
+     * endpoint), the search is repeated with a simpler one: without the name filter, and then
+     * without paging at all. The client-side prefix filter makes the result the same in every case.
+     * </p>
+     *
+     * @param request the unchecked requester for the endpoint
+     * @param key the name of the JSON array in the search response
+     * @param nameField the field compared with the test prefix in addition to the ID
+     * @param parentField the field containing the ID of the parent entity, or null
+     * @return the matching entity IDs mapped to their parent IDs (null values if there is no parent)
+     */
+    private static Map<String, String> findTestEntities(Requester request, String key, String nameField,
+                                                        String parentField) {
+        // У пользователей нет измерения name в локаторе, для них сразу ищем без фильтра
+        var locators = "name".equals(nameField) ? List.of(NAME_LOCATOR + ",", "") : List.of("");
+        for (var locator : locators) {
+            var entities = searchPages(request, key, locator);
+            if (entities != null) {
+                return filterTestEntities(entities, nameField, parentField);
+            }
+        }
+        var response = request.search();
+        checkSearchResponse(response);
+        return filterTestEntities(getPage(response, key), nameField, parentField);
+    }
+
+    /**
+     * Reads all pages of the search result.
+     *
+     * @param request the unchecked requester for the endpoint
+     * @param key the name of the JSON array in the search response
+     * @param locatorPrefix the filtering part of the locator, empty or ending with a comma
+     * @return all found entities, or null if the server rejected the locator
+     */
+    private static List<Map<String, Object>> searchPages(Requester request, String key, String locatorPrefix) {
+        var entities = new ArrayList<Map<String, Object>>();
+        for (var start = 0;; start += PAGE_SIZE) {
+            var response = request.search(locatorPrefix + "count:" + PAGE_SIZE + ",start:" + start);
+            if (response.getStatusCode() == HttpStatus.SC_BAD_REQUEST && start == 0) {
+                return null;
+            }
+            checkSearchResponse(response);
+            var page = getPage(response, key);
+            entities.addAll(page);
+            if (page.size() < PAGE_SIZE) {
+                return entities;
+            }
+        }
+    }
+
+    /**
+     * Extracts the entities of a single page. The array is omitted by the server if the page is empty.
+     *
+     * @param response the search response
+     * @param key the name of the JSON array in the search response
+     * @return the entities of the page
+     */
+    private static List<Map<String, Object>> getPage(Response response, String key) {
+        List<Map<String, Object>> page = response.jsonPath().getList(key);
+        return page == null ? List.of() : page;
+    }
+
+    /**
+     * Fails the sweep if the search was not successful.
+     *
+     * @param response the search response
+     */
+    private static void checkSearchResponse(Response response) {
+        if (response.getStatusCode() != HttpStatus.SC_OK) {
+            throw new IllegalStateException("Orphan search failed with HTTP " + response.getStatusCode()
+                    + ": " + response.asString());
+        }
+    }
+
+    /**
+     * Keeps only the entities whose ID or name starts with the test prefix.
+     *
+     * @param entities the entities returned by the server
+     * @param nameField the field compared with the test prefix in addition to the ID
+     * @param parentField the field containing the ID of the parent entity, or null
+     * @return the matching entity IDs mapped to their parent IDs
+     */
+    private static Map<String, String> filterTestEntities(List<Map<String, Object>> entities, String nameField,
+                                                          String parentField) {
+        var testEntities = new HashMap<String, String>();
+        for (var entity : entities) {
+            var id = String.valueOf(entity.get("id"));
+            if (id.startsWith(RandomData.TEST_PREFIX)
+                    || String.valueOf(entity.get(nameField)).startsWith(RandomData.TEST_PREFIX)) {
+                testEntities.put(id, parentField == null ? null : (String) entity.get(parentField));
+            }
+        }
+        return testEntities;
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.teamcity.api.generators;
+
+import com.teamcity.api.models.BuildType;
+import com.teamcity.api.models.Project;
+
+import java.util.List;
+
+/**
+ * Project created from a {@link ProjectTemplates} template, together with its copied build configurations.
+ *
+ * @param project the created project
+ * @param buildTypes the build configurations copied from the template
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see ProjectTemplates
+ */
+public record ProjectCopy(Project project, List<BuildType> buildTypes) {
+
+    /**
+     * Finds a copied build configuration by the name it has in the template.
+     *
+     * @param name the name of the build configuration
+     * @return the copied build configuration
+     * @throws IllegalArgumentException if the project has no build configuration with this name
+     */
+    public BuildType getBuildType(String name) {
+        return buildTypes.stream()
+                .filter(buildType -> name.equals(buildType.getName()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No build type " + name + " in " + project.getId()));
+    }
+
+}
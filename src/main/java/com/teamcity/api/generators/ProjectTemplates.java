@@ -0,0 +1,215 @@
+package com.teamcity.api.generators;
+
+import com.teamcity.api.config.Config;
+import com.teamcity.api.enums.Endpoint;
+import com.teamcity.api.models.BuildType;
+import com.teamcity.api.models.NewProjectDescription;
+import com.teamcity.api.models.Project;
+import com.teamcity.api.requests.Requesters;
+import com.teamcity.api.requests.RequestersWithS;
+import com.teamcity.api.requests.withS.RequesterWithS;
+import com.teamcity.api.spec.RequestSpecs;
+import io.qameta.allure.Step;
+import io.restassured.response.Response;
+import org.apache.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.teamcity.api.generators.TestDataGenerator.generate;
+
+/**
+ * Named project templates that are created once per suite and copied by tests in a single request.
+ * <p>
+ * Building a project with several build configurations, steps and properties takes one request per
+ * entity. A template registers such a fixture once: the template project is created on first use,
+ * and every {@link #materialize(String)} creates a copy of it with regenerated ID and name through
+ * one copy request (sourceProject + copyAllAssociatedSettings). The copy is placed like any other
+ * generated project (under _Root or under the {@link IsolationRoot}).
+ * </p>
+ *
+ * <pre>{@code
+ * ProjectTemplates.register("scriptBuild", () -> List.of(BuildType.builder().name("Build").steps(steps).build()));
+ * var copy = ProjectTemplates.materialize("scriptBuild");
+ * var buildType = copy.getBuildType("Build");
+ * }</pre>
+ *
+ * <p>
+ * The copied project and its build configurations are registered in {@link TestDataStorage}, so they
+ * are deleted after the test; the build configurations are deleted by the server together with the
+ * project. Template projects are journaled and deleted by {@link #deleteTemplates(Requesters)} at the
+ * end of the suite.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see ProjectCopy
+ * @see TestDataStorage
+ */
+public final class ProjectTemplates {
+
+    /**
+     * Checked requesters of the super user, used to copy templates.
+     */
+    private static final RequestersWithS SUPER_USER_REQUESTS = new RequestersWithS(RequestSpecs.superUserSpec());
+
+    /**
+     * Build configurations of every registered template, by template name.
+     */
+    private static final Map<String, Supplier<List<BuildType>>> DEFINITIONS = new ConcurrentHashMap<>();
+
+    /**
+     * IDs of the template projects, by template name; a future is completed when its template is created.
+     */
+    private static final Map<String, CompletableFuture<String>> TEMPLATE_IDS = new ConcurrentHashMap<>();
+
+    /**
+     * Time a test waits for a template that is being created by another test.
+     */
+    private static final Duration CREATE_TIMEOUT = Duration.ofSeconds(Config.getLong("projectTemplateTimeoutSeconds"));
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ProjectTemplates() {
+    }
+
+    /**
+     * Registers a template. Registering the same name again has no effect.
+     * <p>
+     * The supplier is called once, when the template is materialized for the first time. IDs and
+     * projects of the supplied build configurations are replaced; names, steps and other settings
+     * are kept.
+     * </p>
+     *
+     * @param name the name of the template
+     * @param buildTypes the supplier of the build configurations of the template
+     */
+    public static void register(String name, Supplier<List<BuildType>> buildTypes) {
+        DEFINITIONS.putIfAbsent(name, buildTypes);
+    }
+
+    /**
+     * Creates a copy of the template for the current test.
+     *
+     * @param name the name of the template
+     * @return the copied project and its build configurations
+     */
+    @Step("Create project from template {name}")
+    public static ProjectCopy materialize(String name) {
+        var templateId = getTemplateId(name);
+        var description = generate(NewProjectDescription.class);
+        description.setSourceProject(new Project(templateId, null, templateId));
+        description.setCopyAllAssociatedSettings(true);
+
+        RequesterWithS<Project> projectRequest = SUPER_USER_REQUESTS.getRequest(Endpoint.PROJECTS);
+        var project = projectRequest.create(description);
+        RequesterWithS<BuildType> buildTypeRequest = SUPER_USER_REQUESTS.getRequest(Endpoint.BUILD_TYPES);
+        var buildTypes = buildTypeRequest.search("affectedProject:(id:" + project.getId() + ")");
+        // Скопированные билд конфигурации удалятся каскадно вместе с проектом, для этого у них указывается родитель
+        buildTypes.forEach(buildType -> {
+            buildType.setProject(project);
+            TestDataStorage.getStorage().addCreatedEntity(Endpoint.BUILD_TYPES, buildType);
+        });
+        return new ProjectCopy(project, buildTypes);
+    }
+
+    /**
+     * Deletes all created template projects.
+     *
+     * @param uncheckedSuperUser the requester to use for deletion operations
+     * @return the list of templates that could not be deleted
+     */
+    public static List<CleanupFailure> deleteTemplates(Requesters uncheckedSuperUser) {
+        var templates = TEMPLATE_IDS.values().stream()
+                .filter(templateId -> templateId.isDone() && !templateId.isCompletedExceptionally())
+                .map(templateId -> new EntityRef(Endpoint.PROJECTS, templateId.join()))
+                .toList();
+        TEMPLATE_IDS.clear();
+        return new CleanupPlan(templates, Map.of()).execute(uncheckedSuperUser);
+    }
+
+    /**
+     * Gets the ID of the template project, creating the template on first use.
+     * <p>
+     * The template is created once, even if the first tests using it run in parallel: the first of them
+     * creates it, the others wait for its future. The HTTP requests are not sent inside
+     * ConcurrentHashMap.computeIfAbsent, which would block other keys of the same bin for their duration.
+     * If the creation fails with any Throwable, the future is completed exceptionally and removed, so the
+     * waiting tests fail and the next test tries again. Waiting tests give up after
+     * projectTemplateTimeoutSeconds.
+     * </p>
+     *
+     * @param name the name of the template
+     * @return the ID of the template project
+     */
+    private static String getTemplateId(String name) {
+        var templateId = new CompletableFuture<String>();
+        var existing = TEMPLATE_IDS.putIfAbsent(name, templateId);
+        if (existing != null) {
+            // Ждем на копии: таймаут одного ожидающего теста не должен завершать общий future
+            return existing.copy().orTimeout(CREATE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).join();
+        }
+        try {
+            templateId.complete(createTemplate(name));
+        } catch (Throwable e) {
+            // RestAssured пробрасывает ConnectException и SocketTimeoutException без объявления, а supplier шаблона
+            // может бросить Error: future должен быть завершен в любом случае, иначе ожидающие тесты зависнут
+            TEMPLATE_IDS.remove(name, templateId);
+            templateId.completeExceptionally(e);
+            throw e;
+        }
+        return templateId.join();
+    }
+
+    /**
+     * Creates the template project with its build configurations.
+     * <p>
+     * Unchecked requesters are used, because the template must outlive the test that created it
+     * and therefore must not be registered in its TestDataStorage.
+     * </p>
+     *
+     * @param name the name of the template
+     * @return the ID of the template project
+     */
+    private static String createTemplate(String name) {
+        var definition = DEFINITIONS.get(name);
+        if (definition == null) {
+            throw new IllegalArgumentException("Project template " + name + " is not registered");
+        }
+        var uncheckedSuperUser = new Requesters(RequestSpecs.superUserSpec());
+        var templateId = RandomData.getUniqueString();
+        checkCreated(uncheckedSuperUser.getRequest(Endpoint.PROJECTS)
+                .create(NewProjectDescription.builder().id(templateId).name(templateId).build()), templateId);
+        CleanupJournal.getJournal().recordCreated(Endpoint.PROJECTS, templateId);
+
+        var buildTypes = definition.get();
+        for (var index = 0; index < buildTypes.size(); index++) {
+            var buildType = buildTypes.get(index);
+            buildType.setId(templateId + "_bt" + index);
+            buildType.setProject(Project.builder().id(templateId).build());
+            checkCreated(uncheckedSuperUser.getRequest(Endpoint.BUILD_TYPES).create(buildType), buildType.getId());
+        }
+        return templateId;
+    }
+
+    /**
+     * Fails the template creation if the entity was not created.
+     *
+     * @param response the create response
+     * @param id the ID of the entity
+     */
+    private static void checkCreated(Response response, String id) {
+        if (response.getStatusCode() != HttpStatus.SC_OK) {
+            throw new IllegalStateException("Cannot create project template entity " + id + ": HTTP "
+                    + response.getStatusCode() + " " + response.asString());
+        }
+    }
+
+}
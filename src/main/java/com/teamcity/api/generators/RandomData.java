@@ -11,15 +11,17 @@ import org.apache.commons.lang3.RandomStringUtils;
  * </p>
  *
  * <p>
- * The class uses Apache Commons Lang's RandomStringUtils for secure random string
- * generation, ensuring that generated values are cryptographically secure and
- * suitable for testing purposes.
+ * Test data is drawn from the seeded Random of the current test invocation (see {@link DataSeed}),
+ * so the same suite seed always produces the same values for the same test. Names of
+ * infrastructure entities that must be unique across runs are generated by {@link #getUniqueString()}
+ * from a secure random source instead, so that they do not shift the seeded sequence.
  * </p>
  *
  * @author TeamCity Testing Framework
  * @version 1.0
  * @since 1.0
  * @see RandomStringUtils
+ * @see DataSeed
  */
 public final class RandomData {
 
@@ -39,7 +41,7 @@ public final class RandomData {
      * making it easier to distinguish between test data and real data.
      * </p>
      */
-    private static final String TEST_PREFIX = "test_";
+    public static final String TEST_PREFIX = "test_";
 
     /**
      * Private constructor to prevent instantiation.
@@ -60,7 +62,7 @@ public final class RandomData {
      * @return a random string prefixed with "test_"
      */
     public static String getString() {
-        return TEST_PREFIX + RandomStringUtils.secure().nextAlphabetic(LENGTH);
+        return TEST_PREFIX + nextAlphabetic(LENGTH);
     }
 
     /**
@@ -77,7 +79,30 @@ public final class RandomData {
     public static String getString(int length) {
         // Генерируем строку кастомной длины, учитывая то, что test_ уже занимает 5 символов.
         // Строка меньше 10 символов не может получиться
-        return TEST_PREFIX + RandomStringUtils.secure().nextAlphabetic(Math.max(length - TEST_PREFIX.length(), LENGTH));
+        return TEST_PREFIX + nextAlphabetic(Math.max(length - TEST_PREFIX.length(), LENGTH));
+    }
+
+    /**
+     * Generates a random string that is unique across runs, regardless of the data seed.
+     * <p>
+     * Used for entities that are not part of the test data, such as isolation root projects
+     * and project templates. The seeded sequence of the current test is not affected.
+     * </p>
+     *
+     * @return a random string prefixed with "test_"
+     */
+    public static String getUniqueString() {
+        return TEST_PREFIX + RandomStringUtils.secure().nextAlphabetic(LENGTH);
+    }
+
+    /**
+     * Draws alphabetic characters from the seeded Random of the current test.
+     *
+     * @param count the number of characters
+     * @return the random alphabetic string
+     */
+    private static String nextAlphabetic(int count) {
+        return RandomStringUtils.random(count, 0, 0, true, false, null, DataSeed.getRandom());
     }
 
 }
@@ -0,0 +1,41 @@
+package com.teamcity.api.generators;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Result of a single {@link OrphanSweeper} run.
+ *
+ * @param dryRun whether entities were only listed and not deleted
+ * @param roots the top-most entities that were (or would be) deleted explicitly, as "ENDPOINT id"
+ * @param cascaded the number of matching entities removed by the server together with a root
+ * @param protectedCount the number of matching entities skipped because a running fork still owns them,
+ *                       they are too recent or they contain such an entity
+ * @param recentCount the number of matching entities first seen less than orphanMinAgeMinutes ago
+ * @param failures the entities that could not be deleted, empty for a dry run
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see OrphanSweeper
+ */
+public record SweepReport(boolean dryRun, List<String> roots, int cascaded, int protectedCount, int recentCount,
+                          List<CleanupFailure> failures) {
+
+    @Override
+    public String toString() {
+        var report = new StringBuilder()
+                .append(dryRun ? "Orphan sweep (dry run): " : "Orphan sweep: ")
+                .append(roots.size()).append(" roots, ")
+                .append(cascaded).append(" cascaded, ")
+                .append(protectedCount).append(" protected (").append(recentCount).append(" too recent), ")
+                .append(failures.size()).append(" failed");
+        roots.forEach(root -> report.append('\n').append(root));
+        if (!failures.isEmpty()) {
+            report.append("\nFailures:\n").append(failures.stream()
+                    .map(Object::toString)
+                    .collect(Collectors.joining("\n")));
+        }
+        return report.toString();
+    }
+
+}
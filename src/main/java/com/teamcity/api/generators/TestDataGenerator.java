@@ -5,6 +5,7 @@ import com.teamcity.api.annotations.Optional;
 import com.teamcity.api.annotations.Parameterizable;
 import com.teamcity.api.annotations.Random;
 import com.teamcity.api.models.BaseModel;
+import com.teamcity.api.models.NewProjectDescription;
 import com.teamcity.api.models.TestData;
 
 import java.lang.reflect.InvocationTargetException;
@@ -33,6 +34,11 @@ import java.util.List;
  * </ul>
  * </p>
  *
+ * <p>
+ * If isolation is enabled, the parent project of every generated NewProjectDescription is set
+ * to the current {@link IsolationRoot}.
+ * </p>
+ *
  * @author TeamCity Testing Framework
  * @version 1.0
  * @since 1.0
@@ -42,6 +48,7 @@ import java.util.List;
  * @see Optional
  * @see Parameterizable
  * @see Dependent
+ * @see IsolationRoot
  */
 public final class TestDataGenerator {
 
@@ -140,6 +147,10 @@ public final class TestDataGenerator {
                 }
                 field.setAccessible(false);
             }
+            // При включенной изоляции все проекты создаются внутри корневого проекта потока или теста
+            if (instance instanceof NewProjectDescription newProjectDescription) {
+                IsolationRoot.getParentProject().ifPresent(newProjectDescription::setParentProject);
+            }
             return instance;
         } catch (InstantiationException | IllegalAccessException | InvocationTargetException
                  | NoSuchMethodException | NoSuchFieldException e) {
@@ -1,20 +1,37 @@
 package com.teamcity.api.generators;
 
+import com.teamcity.api.config.Config;
+import com.teamcity.api.context.InvocationScoped;
 import com.teamcity.api.enums.Endpoint;
 import com.teamcity.api.models.BaseModel;
+import com.teamcity.api.models.Build;
+import com.teamcity.api.models.BuildType;
+import com.teamcity.api.models.Identifiable;
+import com.teamcity.api.models.NewProjectDescription;
 import com.teamcity.api.requests.Requesters;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 
 /**
  * Thread-safe storage for tracking created test entities and managing cleanup.
  * <p>
  * This class provides a centralized way to track entities created during test execution
- * and ensure they are properly cleaned up after tests complete. It uses a ThreadLocal
- * pattern to ensure thread safety in parallel test execution.
+ * and ensure they are properly cleaned up after tests complete. The storage is scoped to the
+ * test invocation rather than to the thread (see {@link com.teamcity.api.context.InvocationContext}),
+ * so entities created by child tasks of the test on other threads are registered with the same
+ * storage. Access to the tracked entities is synchronized, because such tasks may register entities
+ * concurrently; delete requests are sent outside of the lock.
  * </p>
  *
  * <p>
@@ -24,23 +41,84 @@ import java.util.Set;
  * their dependencies.
  * </p>
  *
+ * <p>
+ * Entities of the same endpoint do not depend on each other, so they are deleted concurrently
+ * on a shared pool bounded by the cleanupParallelism property, while the endpoints themselves
+ * are still processed one after another (see {@link CleanupPlan}).
+ * </p>
+ *
+ * <p>
+ * The storage also records parent/child relationships between created entities (a build type
+ * belongs to its project, a build to its build type, a project to its parent project). TeamCity
+ * deletes children together with their parent, so only root entities, whose ancestors were not
+ * created by the test, are deleted explicitly.
+ * </p>
+ *
+ * <p>
+ * With cleanupMode=async the cleanup plan is handed over to the {@link BackgroundCleaner} and the
+ * test thread returns immediately. This is safe because every test works with uniquely generated
+ * IDs, so entities that are still being deleted cannot affect other tests.
+ * </p>
+ *
+ * <p>
+ * Entities created inside a thread isolation root are not deleted after the test: they are handed
+ * over to {@link IsolationRoot} and removed together with the root at the end of the suite.
+ * </p>
+ *
+ * <p>
+ * Every registered entity is also appended to the {@link CleanupJournal}, so entities left behind
+ * by an interrupted run are deleted at the start of the next one.
+ * </p>
+ *
  * @author TeamCity Testing Framework
  * @version 1.0
  * @since 1.0
  * @see Endpoint
  * @see BaseModel
  * @see Requesters
+ * @see CleanupPlan
+ * @see BackgroundCleaner
+ * @see CleanupJournal
+ * @see InvocationScoped
  */
 public final class TestDataStorage {
 
     /**
-     * ThreadLocal instance of TestDataStorage for thread safety.
+     * Invocation-scoped instance of TestDataStorage.
      * <p>
-     * This ensures that each thread has its own instance of TestDataStorage,
-     * preventing conflicts in parallel test execution.
+     * This ensures that each test invocation has its own instance of TestDataStorage, shared by
+     * all threads working for that invocation and isolated from other tests running in parallel.
      * </p>
      */
-    private static final ThreadLocal<TestDataStorage> TEST_DATA_STORAGE = ThreadLocal.withInitial(TestDataStorage::new);
+    private static final InvocationScoped<TestDataStorage> TEST_DATA_STORAGE =
+            InvocationScoped.withInitial(TestDataStorage::new);
+
+    /**
+     * Whether cleanup is delegated to the background cleaner instead of being done by the test thread.
+     */
+    private static final boolean ASYNC_CLEANUP = "async".equalsIgnoreCase(Config.getProperty("cleanupMode"));
+
+    /**
+     * Cached getters of the "id" field for models that do not implement {@link Identifiable}.
+     * <p>
+     * ClassValue computes the getter once per model class, so the reflective lookup is not repeated
+     * on every registered entity.
+     * </p>
+     */
+    // Рефлексия выполняется один раз на класс модели, дальше используется закешированный MethodHandle
+    private static final ClassValue<MethodHandle> ID_GETTERS = new ClassValue<>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                var idField = type.getDeclaredField("id");
+                return MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+                        .unreflectGetter(idField)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (NoSuchFieldException | IllegalAccessException e) {
+                throw new IllegalStateException("Cannot get entity id", e);
+            }
+        }
+    };
 
     /**
      * Map storing created entities with their corresponding endpoints.
@@ -63,6 +141,15 @@ public final class TestDataStorage {
     удаления сущностей в правильном порядке (чтобы не пытаться удалять build type после project и т.п.) */
     private final EnumMap<Endpoint, Set<String>> createdEntitiesMap;
 
+    /**
+     * Map storing the parent of each created entity that has one.
+     * <p>
+     * The parent is recorded at registration time, even if it was not created by the test.
+     * During cleanup only parents that are present in createdEntitiesMap are taken into account.
+     * </p>
+     */
+    private final Map<EntityRef, EntityRef> parentsMap;
+
     /**
      * Private constructor to prevent instantiation.
      * <p>
@@ -71,16 +158,17 @@ public final class TestDataStorage {
      */
     private TestDataStorage() {
         createdEntitiesMap = new EnumMap<>(Endpoint.class);
+        parentsMap = new HashMap<>();
     }
 
     /**
-     * Gets the current thread's TestDataStorage instance.
+     * Gets the current invocation's TestDataStorage instance.
      * <p>
-     * This method returns the TestDataStorage instance associated with the current thread.
+     * This method returns the TestDataStorage instance associated with the current test invocation.
      * If no instance exists, a new one will be created automatically.
      * </p>
      *
-     * @return the TestDataStorage instance for the current thread
+     * @return the TestDataStorage instance for the current invocation
      */
     public static TestDataStorage getStorage() {
         return TEST_DATA_STORAGE.get();
@@ -100,9 +188,10 @@ public final class TestDataStorage {
     /* В Map добавляется только id созданной сущности, этого достаточно для удаления
     Условие .computeIfAbsent() создает пустое множество, если данному эндпоинту еще не соответствует ни одно.
     Далее в созданное или в ранее существовавшее множество добавляется новый id */
-    public void addCreatedEntity(Endpoint endpoint, String id) {
-        if (id != null) {
-            createdEntitiesMap.computeIfAbsent(endpoint, key -> new HashSet<>()).add(id);
+    public synchronized void addCreatedEntity(Endpoint endpoint, String id) {
+        if (id != null && createdEntitiesMap.computeIfAbsent(endpoint, key -> new HashSet<>()).add(id)) {
+            // Журнал пишется сразу, чтобы сущность можно было удалить даже после падения JVM
+            CleanupJournal.getJournal().recordCreated(endpoint, id);
         }
     }
 
@@ -117,53 +206,172 @@ public final class TestDataStorage {
      * @param model the model containing the entity to track
      */
     public void addCreatedEntity(Endpoint endpoint, BaseModel model) {
-        addCreatedEntity(endpoint, getEntityId(model));
+        addCreatedEntity(endpoint, model, model);
+    }
+
+    /**
+     * Adds a created entity to the storage together with its parent entity.
+     * <p>
+     * The parent is taken from the created model (BuildType.project, Build.buildType) or,
+     * if the response does not contain it, from the request model
+     * (including NewProjectDescription.parentProject for projects).
+     * </p>
+     *
+     * @param endpoint the endpoint associated with the created entity
+     * @param request the model that was sent to create the entity
+     * @param created the model returned by the server
+     */
+    public synchronized void addCreatedEntity(Endpoint endpoint, BaseModel request, BaseModel created) {
+        var id = getEntityId(created);
+        addCreatedEntity(endpoint, id);
+        if (id != null) {
+            getParent(created).or(() -> getParent(request))
+                    .ifPresent(parent -> parentsMap.put(new EntityRef(endpoint, id), parent));
+        }
     }
 
     /**
      * Deletes all tracked entities and clears the storage.
      * <p>
-     * This method iterates through all stored entities and deletes them using
-     * the provided requester. The deletion order follows the Endpoint enum order,
-     * ensuring that dependent entities are deleted before their dependencies.
+     * Only root entities are deleted explicitly: an entity is skipped if one of its ancestors
+     * is tracked as well, because the server removes it together with that ancestor. If a root
+     * could not be deleted, its tracked descendants are deleted explicitly afterward.
+     * </p>
+     *
+     * <p>
+     * Deletion goes through the endpoints in the Endpoint enum order, ensuring that dependent
+     * entities are deleted before their dependencies. All IDs of a single endpoint are deleted
+     * concurrently, and the next endpoint is processed only after every delete request of the
+     * previous one has completed.
+     * </p>
+     *
+     * <p>
+     * Responses are checked: a delete is considered successful if the server returned a 2xx status
+     * or 404 (the entity was already deleted by the test itself). Every other outcome is collected
+     * and returned instead of being silently ignored. After deletion, the storage is cleared to
+     * prevent attempts to delete already-deleted entities in subsequent test runs.
      * </p>
      *
      * <p>
-     * After deletion, the storage is cleared to prevent attempts to delete
-     * already-deleted entities in subsequent test runs.
+     * In async cleanup mode the method returns an empty list right away; failures are reported
+     * by {@link BackgroundCleaner#drain} at the end of the suite.
      * </p>
      *
      * @param uncheckedSuperUser the requester to use for deletion operations
+     * @return the list of entities that could not be deleted, empty if cleanup was successful
+     */
+    public List<CleanupFailure> deleteCreatedEntities(Requesters uncheckedSuperUser) {
+        CleanupPlan cleanupPlan;
+        // Под локом только снимок и очистка: удаление ждет HTTP ответы, а блокировка внутри synchronized на JDK 21
+        // прикрепляет виртуальный поток теста к платформенному
+        synchronized (this) {
+            cleanupPlan = createCleanupPlan();
+            // Очистка Map необходима, так как если этого не делать и запускать более 1-ого теста, то со второго
+            // будут попытки удалить уже удаленные сущности
+            createdEntitiesMap.clear();
+            parentsMap.clear();
+        }
+        IsolationRoot.releaseInvocationRoot();
+        if (ASYNC_CLEANUP) {
+            BackgroundCleaner.submit(cleanupPlan, uncheckedSuperUser);
+            return List.of();
+        }
+        return cleanupPlan.execute(uncheckedSuperUser);
+    }
+
+    /**
+     * Splits tracked entities into roots and children and takes a snapshot of their ancestry.
+     *
+     * @return the cleanup plan for all tracked entities
+     */
+    private CleanupPlan createCleanupPlan() {
+        var roots = new ArrayList<EntityRef>();
+        var childAncestors = new HashMap<EntityRef, List<EntityRef>>();
+        createdEntitiesMap.forEach((endpoint, ids) -> ids.forEach(id -> {
+            var entity = new EntityRef(endpoint, id);
+            if (getAncestors(entity).stream().anyMatch(IsolationRoot::isSuiteRoot)) {
+                // Сущность внутри корня потока удалится вместе с ним в конце сьюта
+                IsolationRoot.adopt(entity, getAncestors(entity));
+            } else if (getTrackedAncestor(entity).isPresent()) {
+                childAncestors.put(entity, getAncestors(entity));
+            } else {
+                roots.add(entity);
+            }
+        }));
+        return new CleanupPlan(roots, childAncestors);
+    }
+
+    /**
+     * Finds the closest ancestor of the entity that is tracked in this storage.
+     *
+     * @param entity the entity to check
+     * @return the closest tracked ancestor, or an empty Optional if the entity is a root
+     */
+    private Optional<EntityRef> getTrackedAncestor(EntityRef entity) {
+        return getAncestors(entity).stream()
+                .filter(ancestor -> createdEntitiesMap.getOrDefault(ancestor.endpoint(), Set.of())
+                        .contains(ancestor.id()))
+                .findFirst();
+    }
+
+    /**
+     * Collects all recorded ancestors of the entity, from the closest one to the farthest one.
+     *
+     * @param entity the entity to collect ancestors for
+     * @return the list of ancestors
+     */
+    private List<EntityRef> getAncestors(EntityRef entity) {
+        var ancestors = new ArrayList<EntityRef>();
+        var parent = parentsMap.get(entity);
+        // Проверка на contains защищает от зацикливания, если проект по ошибке указан родителем самого себя
+        while (parent != null && !ancestors.contains(parent)) {
+            ancestors.add(parent);
+            parent = parentsMap.get(parent);
+        }
+        return ancestors;
+    }
+
+    /**
+     * Extracts the parent entity from the model, if the model type has one.
+     *
+     * @param model the request or response model
+     * @return the parent entity, or an empty Optional if it is unknown
      */
-    public void deleteCreatedEntities(Requesters uncheckedSuperUser) {
-        createdEntitiesMap.forEach((endpoint, ids) -> ids.forEach(id ->
-                uncheckedSuperUser.getRequest(endpoint).delete(id)));
-        // Очистка Map необходима, так как если этого не делать и запускать более 1-ого теста, то со второго
-        // будут попытки удалить уже удаленные сущности
-        createdEntitiesMap.clear();
+    private static Optional<EntityRef> getParent(BaseModel model) {
+        if (model instanceof BuildType buildType && buildType.getProject() != null) {
+            return EntityRef.of(Endpoint.PROJECTS, buildType.getProject().getId());
+        }
+        if (model instanceof Build build && build.getBuildType() != null) {
+            return EntityRef.of(Endpoint.BUILD_TYPES, build.getBuildType().getId());
+        }
+        if (model instanceof NewProjectDescription description && description.getParentProject() != null) {
+            // Родительский проект может быть задан как через id, так и через locator (например, _Root)
+            var parentProject = description.getParentProject();
+            return EntityRef.of(Endpoint.PROJECTS, parentProject.getId() != null
+                    ? parentProject.getId() : parentProject.getLocator());
+        }
+        return Optional.empty();
     }
 
     /**
-     * Extracts the ID field from a BaseModel using reflection.
+     * Extracts the ID from a BaseModel.
      * <p>
-     * This method uses reflection to access the "id" field of the provided model
-     * and returns its string representation. This is necessary because not all
-     * BaseModel subclasses have a public getter for the ID field.
+     * Models with an ID implement {@link Identifiable}, so the ID is read through a plain getter call.
+     * For other models the "id" field is read through a MethodHandle, which is created once per class
+     * and cached in {@link #ID_GETTERS}.
      * </p>
      *
      * @param model the model to extract the ID from
-     * @return the string representation of the model's ID, or null if not found
-     * @throws IllegalStateException if the ID field cannot be accessed
+     * @return the string representation of the model's ID, or null if it is not assigned
+     * @throws IllegalStateException if the model has no ID field
      */
-    // Так как не все классы, наследующие BaseModel, имеют поле id, то получаем его с помощью рефлексии
-    private String getEntityId(BaseModel model) {
+    private static String getEntityId(BaseModel model) {
+        if (model instanceof Identifiable identifiable) {
+            return identifiable.getId();
+        }
         try {
-            var idField = model.getClass().getDeclaredField("id");
-            idField.setAccessible(true);
-            var idFieldValue = Objects.toString(idField.get(model), null);
-            idField.setAccessible(false);
-            return idFieldValue;
-        } catch (NoSuchFieldException | IllegalAccessException e) {
+            return Objects.toString(ID_GETTERS.get(model.getClass()).invokeExact((Object) model), null);
+        } catch (Throwable e) {
             throw new IllegalStateException("Cannot get entity id", e);
         }
     }
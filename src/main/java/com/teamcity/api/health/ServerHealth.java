@@ -0,0 +1,78 @@
+package com.teamcity.api.health;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a single {@link ServerHealthProbe} run.
+ * <p>
+ * Values that could not be probed are -1 (numbers) or null (version); the reason is listed in errors.
+ * </p>
+ *
+ * @param version the TeamCity server version, or null if the server is not ready
+ * @param latencyMillis the median REST latency in milliseconds
+ * @param agents the number of authorized, enabled and connected agents
+ * @param runningBuilds the number of running builds
+ * @param queuedBuilds the number of queued builds
+ * @param errors the probes that failed, with their reasons
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see ServerHealthProbe
+ */
+public record ServerHealth(String version, long latencyMillis, int agents, int runningBuilds, int queuedBuilds,
+                           List<String> errors) {
+
+    /**
+     * Checks whether the server answered the REST API with its version.
+     *
+     * @return true if the server is ready to serve tests
+     */
+    public boolean isReady() {
+        return version != null;
+    }
+
+    /**
+     * Estimates the number of agents that can start a build right away.
+     *
+     * @return the number of agents not busy with running builds, or -1 if unknown
+     */
+    public int getFreeAgents() {
+        return agents < 0 || runningBuilds < 0 ? -1 : Math.max(0, agents - runningBuilds);
+    }
+
+    /**
+     * Converts the result to the entries of the Allure environment report.
+     *
+     * @return the environment entries in display order
+     */
+    public Map<String, String> toEnvironment() {
+        var environment = new LinkedHashMap<String, String>();
+        environment.put("TeamCity version", isReady() ? version : "not ready");
+        environment.put("REST latency, ms", format(latencyMillis));
+        environment.put("Authorized agents", format(agents));
+        environment.put("Free agents", format(getFreeAgents()));
+        environment.put("Queued builds", format(queuedBuilds));
+        return environment;
+    }
+
+    @Override
+    public String toString() {
+        var report = new StringBuilder("Server health:");
+        toEnvironment().forEach((name, value) -> report.append("\n").append(name).append(": ").append(value));
+        errors.forEach(error -> report.append("\nProbe failed: ").append(error));
+        return report.toString();
+    }
+
+    /**
+     * Formats a probed value.
+     *
+     * @param value the value, negative if unknown
+     * @return the value, or "unknown"
+     */
+    private static String format(long value) {
+        return value < 0 ? "unknown" : String.valueOf(value);
+    }
+
+}
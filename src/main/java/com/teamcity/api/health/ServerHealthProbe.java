@@ -0,0 +1,184 @@
+package com.teamcity.api.health;
+
+import com.teamcity.api.enums.Endpoint;
+import com.teamcity.api.requests.withoutS.AgentsRequester;
+import com.teamcity.api.requests.withoutS.Requester;
+import io.restassured.RestAssured;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.apache.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Probes whether a TeamCity server is able to run the suite.
+ * <p>
+ * Server readiness, REST latency, agent availability and build load are probed in parallel, each
+ * with the same timeout, so a half-started server is detected within one timeout instead of failing
+ * the first tests one by one. A probe that fails or times out does not fail the others; its value is
+ * reported as unknown together with the reason.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see ServerHealth
+ */
+public final class ServerHealthProbe {
+
+    /**
+     * URL of the server info, answered only by a fully started server.
+     */
+    private static final String SERVER_URL = "/app/rest/server";
+
+    /**
+     * Locator of the agents that can run builds.
+     */
+    private static final String AVAILABLE_AGENTS_LOCATOR = "authorized:true,enabled:true,connected:true";
+
+    /**
+     * Number of sequential requests the latency is the median of.
+     */
+    private static final int LATENCY_SAMPLES = 5;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ServerHealthProbe() {
+    }
+
+    /**
+     * Probes the server.
+     *
+     * @param spec the request specification of a user allowed to read agents and builds
+     * @param timeout the timeout of every probe
+     * @return the probe result
+     */
+    public static ServerHealth probe(RequestSpecification spec, Duration timeout) {
+        // Платформенные потоки, а не виртуальные: первая инициализация RestAssured (Groovy) блокирует виртуальные
+        // потоки на мониторах и на машине с одним ядром выполняется последовательно. Daemon потоки не держат JVM,
+        // если запрос к зависшему серверу так и не вернется
+        var executor = Executors.newCachedThreadPool(Thread.ofPlatform().daemon().name("health-probe-", 0).factory());
+        var version = CompletableFuture.supplyAsync(() -> readVersion(spec), executor);
+        var latency = CompletableFuture.supplyAsync(() -> measureLatency(spec), executor);
+        var agents = CompletableFuture.supplyAsync(() -> readCount(() -> new AgentsRequester(spec)
+                .read(AVAILABLE_AGENTS_LOCATOR)), executor);
+        var runningBuilds = CompletableFuture.supplyAsync(() -> readCount(() -> new Requester(spec, Endpoint.BUILDS)
+                .search("state:running")), executor);
+        var queuedBuilds = CompletableFuture.supplyAsync(() -> readCount(() -> new Requester(spec,
+                Endpoint.BUILD_QUEUE).search()), executor);
+
+        // Пробы выполняются параллельно, поэтому все они ждут до одного общего дедлайна
+        var deadline = System.nanoTime() + timeout.toNanos();
+        var errors = new ArrayList<String>();
+        var health = new ServerHealth(
+                await("server", version, deadline, null, errors),
+                await("latency", latency, deadline, -1L, errors),
+                await("agents", agents, deadline, -1, errors),
+                await("running builds", runningBuilds, deadline, -1, errors),
+                await("queued builds", queuedBuilds, deadline, -1, errors),
+                List.copyOf(errors));
+        // Не дожидаемся зависших запросов: прерываем их и сразу возвращаем результат
+        executor.shutdownNow();
+        return health;
+    }
+
+    /**
+     * Reads the server version.
+     *
+     * @param spec the request specification
+     * @return the server version
+     * @throws IllegalStateException if the server does not answer with its version
+     */
+    private static String readVersion(RequestSpecification spec) {
+        String version = readServer(spec).path("version");
+        if (version == null) {
+            throw new IllegalStateException("No version in the answer of " + SERVER_URL);
+        }
+        return version;
+    }
+
+    /**
+     * Reads the server info.
+     *
+     * @param spec the request specification
+     * @return the successful response
+     * @throws IllegalStateException if the server does not answer with HTTP 200
+     */
+    private static Response readServer(RequestSpecification spec) {
+        var response = RestAssured.given().spec(spec).get(SERVER_URL);
+        if (response.getStatusCode() != HttpStatus.SC_OK) {
+            throw new IllegalStateException("HTTP " + response.getStatusCode() + " from " + SERVER_URL);
+        }
+        return response;
+    }
+
+    /**
+     * Measures the median duration of sequential server info requests.
+     *
+     * @param spec the request specification
+     * @return the median latency in milliseconds
+     */
+    private static long measureLatency(RequestSpecification spec) {
+        var samples = new long[LATENCY_SAMPLES];
+        for (var i = 0; i < samples.length; i++) {
+            var start = System.nanoTime();
+            readServer(spec);
+            samples[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    /**
+     * Reads the count attribute of a collection response.
+     *
+     * @param request the request returning the collection
+     * @return the number of items
+     * @throws IllegalStateException if the request is not successful
+     */
+    private static int readCount(Supplier<Response> request) {
+        var response = request.get();
+        if (response.getStatusCode() != HttpStatus.SC_OK) {
+            throw new IllegalStateException("HTTP " + response.getStatusCode());
+        }
+        Integer count = response.path("count");
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Waits for a probe, converting its failure to an error entry.
+     *
+     * @param name the name of the probe
+     * @param probe the probe
+     * @param deadline the System.nanoTime value to wait until
+     * @param fallback the value of a failed probe
+     * @param errors the list failures are added to
+     * @param <T> the type of the probed value
+     * @return the probed value, or the fallback
+     */
+    private static <T> T await(String name, CompletableFuture<T> probe, long deadline, T fallback,
+                               List<String> errors) {
+        try {
+            return probe.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            errors.add(name + ": no answer before the timeout");
+        } catch (ExecutionException e) {
+            errors.add(name + ": " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            errors.add(name + ": interrupted");
+        }
+        return fallback;
+    }
+
+}
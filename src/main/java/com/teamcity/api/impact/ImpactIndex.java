@@ -0,0 +1,184 @@
+package com.teamcity.api.impact;
+
+import com.teamcity.api.config.Config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Persistent index of the API resources and page objects exercised by every test.
+ * <p>
+ * The index is loaded from the impactIndexFile property on first use, updated with the usage of
+ * every test that runs (see {@link UsageRecorder}) and saved at the end of the suite. A test that
+ * passed in this JVM replaces its previous entry; entries of tests that did not run are kept, so a
+ * partial run (a shard, a selection) does not lose the rest of the index.
+ * </p>
+ *
+ * <p>
+ * A failed invocation may stop before it reaches some of the resources of the test, so its usage is
+ * only merged into an existing entry: replacing the entry with it could make the selection skip the
+ * test when one of the resources it did not reach changes. A test that has no entry is always selected.
+ * </p>
+ *
+ * <p>
+ * The index is used by the change-impact test selection: tests whose recorded usage is not touched
+ * by a change can be skipped.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see UsageRecorder
+ */
+public final class ImpactIndex {
+
+    /**
+     * Separator of usage keys in the index file.
+     */
+    private static final String SEPARATOR = ",";
+
+    /**
+     * File of the index.
+     */
+    private final Path file;
+
+    /**
+     * Usage keys by full test method name.
+     */
+    private final Map<String, Set<String>> usageByTest;
+
+    /**
+     * Tests that passed in this JVM, whose previous entries are already replaced.
+     */
+    private final Set<String> replacedTests = new HashSet<>();
+
+    /**
+     * Usage of all invocations of every test recorded in this JVM.
+     */
+    private final Map<String, Set<String>> runUsageByTest = new HashMap<>();
+
+    private ImpactIndex(Path file, Map<String, Set<String>> usageByTest) {
+        this.file = file;
+        this.usageByTest = usageByTest;
+    }
+
+    /**
+     * Gets the index of the impactIndexFile property, loading it on first use.
+     *
+     * @return the index
+     */
+    public static ImpactIndex getIndex() {
+        return Holder.INDEX;
+    }
+
+    /**
+     * Loads an index from the file. A missing file gives an empty index.
+     *
+     * @param file the index file
+     * @return the index
+     */
+    public static ImpactIndex load(Path file) {
+        var usageByTest = new TreeMap<String, Set<String>>();
+        if (Files.exists(file)) {
+            var properties = new Properties();
+            try (var reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read impact index " + file, e);
+            }
+            properties.stringPropertyNames().forEach(test -> usageByTest.put(test, new TreeSet<>(
+                    Arrays.asList(properties.getProperty(test).split(SEPARATOR)))));
+        }
+        return new ImpactIndex(file, usageByTest);
+    }
+
+    /**
+     * Records the usage of a finished test invocation.
+     *
+     * @param test the full name of the test method
+     * @param usage the usage keys of the invocation
+     * @param passed whether the invocation passed, i.e. its usage is complete
+     */
+    public synchronized void record(String test, Set<String> usage, boolean passed) {
+        var runUsage = runUsageByTest.computeIfAbsent(test, key -> new TreeSet<>());
+        runUsage.addAll(usage);
+        // Первый успешный вызов теста в этом прогоне заменяет старую запись (вместе с использованием предыдущих
+        // вызовов прогона), остальные вызовы (упавшие, ретраи, data provider) только дополняют ее.
+        // Тест без записи выбирается всегда, поэтому неполное использование упавшего теста запись не создает
+        if (passed && replacedTests.add(test)) {
+            usageByTest.put(test, new TreeSet<>(runUsage));
+        } else if (usageByTest.containsKey(test)) {
+            usageByTest.get(test).addAll(usage);
+        }
+    }
+
+    /**
+     * Gets the recorded usage of a test.
+     *
+     * @param test the full name of the test method
+     * @return the usage keys, or null if the test is not in the index
+     */
+    public synchronized Set<String> getUsage(String test) {
+        var usage = usageByTest.get(test);
+        return usage == null ? null : Set.copyOf(usage);
+    }
+
+    /**
+     * Checks whether the index has no entries, for example before the first recorded run.
+     *
+     * @return true if the index is empty
+     */
+    public synchronized boolean isEmpty() {
+        return usageByTest.isEmpty();
+    }
+
+    /**
+     * Writes the index to its file, sorted by test name so that the file diffs well.
+     */
+    public synchronized void save() {
+        var lines = new StringBuilder();
+        usageByTest.forEach((test, usage) -> lines.append(escape(test)).append('=')
+                .append(escape(String.join(SEPARATOR, usage))).append('\n'));
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write impact index " + file, e);
+        }
+    }
+
+    /**
+     * Escapes characters that have a special meaning in the properties format.
+     *
+     * @param value the value to escape
+     * @return the escaped value
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace(" ", "\\ ").replace(":", "\\:").replace("=", "\\=");
+    }
+
+    /**
+     * Lazy holder of the index of the impactIndexFile property.
+     */
+    private static final class Holder {
+
+        /**
+         * The index of the impactIndexFile property.
+         */
+        private static final ImpactIndex INDEX = load(Path.of(Config.getProperty("impactIndexFile")));
+
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.teamcity.api.impact;
+
+import com.teamcity.api.context.InvocationScoped;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records which API resources and page objects the current test invocation exercised.
+ * <p>
+ * API requests are recorded by {@link com.teamcity.api.spec.UsageRecordingFilter}, which is part of every
+ * request specification, and page objects by the constructor of {@link com.teamcity.ui.pages.BasePage}.
+ * The usage is kept per invocation, so parallel tests do not mix, and is stored in the
+ * {@link ImpactIndex} when the test finishes.
+ * </p>
+ *
+ * <p>
+ * A request is recorded as {@code METHOD /app/rest/resource}: the path is cut before the first locator
+ * segment (such as {@code id:...}), so all requests to one resource share the key regardless of ids.
+ * A page object is recorded as {@code page:ClassName} together with its page object superclasses.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see ImpactIndex
+ */
+public final class UsageRecorder {
+
+    /**
+     * Prefix of page object usage keys.
+     */
+    public static final String PAGE_PREFIX = "page:";
+
+    /**
+     * Maximum number of path segments in a resource key, enough for /app/rest/server/authSettings.
+     */
+    private static final int MAX_RESOURCE_SEGMENTS = 4;
+
+    /**
+     * Usage of the current test invocation.
+     */
+    private static final InvocationScoped<Set<String>> USAGE = InvocationScoped.withInitial(
+            ConcurrentHashMap::newKeySet);
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private UsageRecorder() {
+    }
+
+    /**
+     * Records an API request of the current invocation.
+     *
+     * @param method the HTTP method
+     * @param path the request path
+     */
+    public static void recordRequest(String method, String path) {
+        USAGE.get().add(method + " " + getResource(path));
+    }
+
+    /**
+     * Records a page object of the current invocation, together with its superclasses.
+     *
+     * @param pageClass the class of the page object
+     */
+    public static void recordPage(Class<?> pageClass) {
+        var usage = USAGE.get();
+        for (Class<?> clazz = pageClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            usage.add(PAGE_PREFIX + clazz.getSimpleName());
+        }
+    }
+
+    /**
+     * Gets everything recorded by the current invocation.
+     *
+     * @return the recorded usage keys
+     */
+    public static Set<String> getUsage() {
+        return Set.copyOf(USAGE.get());
+    }
+
+    /**
+     * Reduces a request path to its resource: {@code /app/rest/projects/id:abc/parameters}
+     * becomes {@code /app/rest/projects}.
+     *
+     * @param path the request path, optionally with a query string
+     * @return the resource path
+     */
+    public static String getResource(String path) {
+        var resource = new StringBuilder();
+        var segments = path.split("[?#]", 2)[0].split("/");
+        var count = 0;
+        for (var segment : segments) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (segment.contains(":") || count == MAX_RESOURCE_SEGMENTS) {
+                break;
+            }
+            resource.append('/').append(segment);
+            count++;
+        }
+        return resource.toString();
+    }
+
+}
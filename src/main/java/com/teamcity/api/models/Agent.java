@@ -26,6 +26,7 @@ import lombok.extern.jackson.Jacksonized;
  * @version 1.0
  * @since 1.0
  * @see BaseModel
+ * @see Identifiable
  */
 @Data
 @NoArgsConstructor
@@ -34,7 +35,7 @@ import lombok.extern.jackson.Jacksonized;
 @EqualsAndHashCode(callSuper = false)
 @Jacksonized
 @JsonIgnoreProperties(ignoreUnknown = true)
-public class Agent extends BaseModel {
+public class Agent extends BaseModel implements Identifiable {
 
     /**
      * Unique identifier for the agent.
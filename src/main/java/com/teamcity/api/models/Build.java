@@ -1,6 +1,7 @@
 package com.teamcity.api.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,6 +18,11 @@ import lombok.extern.jackson.Jacksonized;
  * </p>
  *
  * <p>
+ * Queue, start and finish dates, the assigned agent and the wait reason are read-only server data,
+ * used to break the duration of a build test down into queue wait and run time.
+ * </p>
+ *
+ * <p>
  * The class uses Lombok annotations for automatic generation of getters, setters,
  * constructors, and other boilerplate code. It also uses Jackson annotations for
  * JSON serialization/deserialization with the TeamCity API.
@@ -26,7 +32,9 @@ import lombok.extern.jackson.Jacksonized;
  * @version 1.0
  * @since 1.0
  * @see BaseModel
+ * @see Identifiable
  * @see BuildType
+ * @see com.teamcity.api.builds.BuildTiming
  */
 @Data
 @NoArgsConstructor
@@ -36,7 +44,7 @@ import lombok.extern.jackson.Jacksonized;
 @EqualsAndHashCode(callSuper = false)
 @Jacksonized
 @JsonIgnoreProperties(ignoreUnknown = true)
-public class Build extends BaseModel {
+public class Build extends BaseModel implements Identifiable {
 
     /**
      * Unique identifier for the build.
@@ -76,4 +84,39 @@ public class Build extends BaseModel {
      */
     private String state;
 
+    /**
+     * Time the build was put into the queue, in the TeamCity format (20240115T103000+0000).
+     * <p>
+     * This and the following fields are filled by the server only and are never sent.
+     * </p>
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String queuedDate;
+
+    /**
+     * Time the build was started on an agent.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String startDate;
+
+    /**
+     * Time the build finished.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String finishDate;
+
+    /**
+     * The agent the build was assigned to.
+     *
+     * @see Agent
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Agent agent;
+
+    /**
+     * Why a queued build is not started yet, for example "There are no idle compatible agents".
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String waitReason;
+
 }
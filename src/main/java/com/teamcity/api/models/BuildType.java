@@ -28,6 +28,7 @@ import lombok.extern.jackson.Jacksonized;
  * @version 1.0
  * @since 1.0
  * @see BaseModel
+ * @see Identifiable
  * @see Project
  * @see Steps
  */
@@ -38,7 +39,7 @@ import lombok.extern.jackson.Jacksonized;
 @EqualsAndHashCode(callSuper = false)
 @Jacksonized
 @JsonIgnoreProperties(ignoreUnknown = true)
-public class BuildType extends BaseModel {
+public class BuildType extends BaseModel implements Identifiable {
 
     /**
      * Unique identifier for the build type.
@@ -0,0 +1,24 @@
+package com.teamcity.api.models;
+
+/**
+ * Contract for models that have a TeamCity ID.
+ * <p>
+ * The ID is used to register created entities for cleanup and to address them in
+ * read, update and delete requests. The getter itself is generated by Lombok @Data.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see BaseModel
+ */
+public interface Identifiable {
+
+    /**
+     * Gets the ID of the entity.
+     *
+     * @return the ID, or null if it is not assigned yet
+     */
+    String getId();
+
+}
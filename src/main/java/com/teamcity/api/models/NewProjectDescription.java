@@ -1,6 +1,7 @@
 package com.teamcity.api.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.teamcity.api.annotations.Optional;
 import com.teamcity.api.annotations.Random;
 import lombok.AllArgsConstructor;
@@ -28,6 +29,7 @@ import lombok.extern.jackson.Jacksonized;
  * @version 1.0
  * @since 1.0
  * @see BaseModel
+ * @see Identifiable
  * @see Project
  */
 @Data
@@ -37,7 +39,7 @@ import lombok.extern.jackson.Jacksonized;
 @EqualsAndHashCode(callSuper = false)
 @Jacksonized
 @JsonIgnoreProperties(ignoreUnknown = true)
-public class NewProjectDescription extends BaseModel {
+public class NewProjectDescription extends BaseModel implements Identifiable {
 
     /**
      * Unique identifier for the new project.
@@ -71,4 +73,26 @@ public class NewProjectDescription extends BaseModel {
     @Optional
     private Project parentProject = new Project(null, null, "_Root");
 
+    /**
+     * The project to copy the new project from.
+     * <p>
+     * If set, TeamCity creates the new project as a copy of the source project,
+     * including its subprojects and build configurations. The field is not sent
+     * when it is null, so regular project creation is not affected.
+     * </p>
+     */
+    @Optional
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Project sourceProject;
+
+    /**
+     * Whether settings associated with the source project (VCS roots, templates, etc.) are copied too.
+     * <p>
+     * Used together with sourceProject and not sent when it is null.
+     * </p>
+     */
+    @Optional
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean copyAllAssociatedSettings;
+
 }
@@ -28,6 +28,7 @@ import lombok.extern.jackson.Jacksonized;
  * @version 1.0
  * @since 1.0
  * @see BaseModel
+ * @see Identifiable
  * @see NewProjectDescription
  */
 @Data
@@ -37,7 +38,7 @@ import lombok.extern.jackson.Jacksonized;
 @EqualsAndHashCode(callSuper = false)
 @Jacksonized
 @JsonIgnoreProperties(ignoreUnknown = true)
-public class Project extends BaseModel {
+public class Project extends BaseModel implements Identifiable {
 
     /**
      * Unique identifier for the project.
@@ -27,6 +27,7 @@ import lombok.extern.jackson.Jacksonized;
  * @version 1.0
  * @since 1.0
  * @see BaseModel
+ * @see Identifiable
  * @see Roles
  */
 @Data
@@ -36,7 +37,7 @@ import lombok.extern.jackson.Jacksonized;
 @EqualsAndHashCode(callSuper = false)
 @Jacksonized
 @JsonIgnoreProperties(ignoreUnknown = true)
-public class User extends BaseModel {
+public class User extends BaseModel implements Identifiable {
 
     /**
      * Unique identifier for the user.
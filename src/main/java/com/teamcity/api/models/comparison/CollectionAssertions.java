@@ -0,0 +1,239 @@
+package com.teamcity.api.models.comparison;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.restassured.response.Response;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Fluent assertion class for comparing collections of model objects by key.
+ * <p>
+ * Actual items are indexed into a hash map by the key field once, and every expected item
+ * is looked up by its key and compared with the compiled rule of its class. Missing,
+ * mismatched and (in strict mode) unexpected items are collected and reported together
+ * in one {@link CollectionComparisonResult}.
+ * </p>
+ *
+ * <p>
+ * By default the actual collection may contain additional items, which is what a search
+ * against a shared server returns. Use {@link #exactly()} to fail on them as well.
+ * </p>
+ *
+ * <p>
+ * The actual side may also be a raw search response: its list is then streamed and only
+ * the key and compared fields of each element are extracted, see {@link JsonPathExtractor}.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see ModelAssertions#assertThatCollections(Collection, Collection)
+ */
+public final class CollectionAssertions {
+
+    /**
+     * The expected model objects.
+     */
+    private final Collection<?> expected;
+
+    /**
+     * The actual model objects, or null when comparing against a raw response.
+     */
+    private final Collection<?> actual;
+
+    /**
+     * The raw search response, or null when comparing against model objects.
+     */
+    private final Response actualResponse;
+
+    /**
+     * Name of the field identifying an item on both sides.
+     */
+    private String keyField;
+
+    /**
+     * Whether actual items without an expected counterpart fail the assertion.
+     */
+    private boolean strict;
+
+    /**
+     * Creates a new CollectionAssertions instance.
+     *
+     * @param expected the expected model objects
+     * @param actual the actual model objects
+     */
+    CollectionAssertions(Collection<?> expected, Collection<?> actual) {
+        this.expected = expected;
+        this.actual = actual;
+        this.actualResponse = null;
+    }
+
+    /**
+     * Creates a new CollectionAssertions instance comparing against a raw search response.
+     *
+     * @param expected the expected model objects
+     * @param actualResponse the raw search response
+     */
+    CollectionAssertions(Collection<?> expected, Response actualResponse) {
+        this.expected = expected;
+        this.actual = null;
+        this.actualResponse = actualResponse;
+    }
+
+    /**
+     * Sets the field identifying an item on both sides, for example "id" or a dotted path.
+     *
+     * @param field the name or dotted path of the key field
+     * @return this CollectionAssertions instance for method chaining
+     */
+    public CollectionAssertions keyedBy(String field) {
+        this.keyField = field;
+        return this;
+    }
+
+    /**
+     * Requires the actual collection to contain no items besides the expected ones.
+     *
+     * @return this CollectionAssertions instance for method chaining
+     */
+    public CollectionAssertions exactly() {
+        this.strict = true;
+        return this;
+    }
+
+    /**
+     * Performs the comparison and throws an AssertionError if any item is missing or mismatched.
+     *
+     * @return this CollectionAssertions instance for method chaining
+     * @throws AssertionError if the comparison fails or no rule is found for an expected item
+     * @throws IllegalStateException if no key field was set
+     */
+    public CollectionAssertions match() {
+        var result = compare();
+        if (!result.isSuccess()) {
+            throw new AssertionError("Collection comparison failed:\n" + result);
+        }
+        return this;
+    }
+
+    /**
+     * Compares the collections without throwing on mismatches.
+     *
+     * @return the aggregated comparison result
+     * @throws AssertionError if no rule is found for an expected item
+     * @throws IllegalStateException if no key field was set
+     */
+    public CollectionComparisonResult compare() {
+        if (keyField == null) {
+            throw new IllegalStateException("Key field is not set, call keyedBy() before match()");
+        }
+
+        var actualItems = actualResponse == null ? actual : extractActualItems();
+        // Индексируем фактическую коллекцию один раз, дальше каждый ожидаемый элемент ищется за O(1)
+        var actualByKey = new HashMap<Object, Object>(actualItems.size() * 2);
+        var duplicateKeys = new HashSet<Object>();
+        for (var item : actualItems) {
+            var key = getKey(item);
+            if (actualByKey.putIfAbsent(key, item) != null) {
+                duplicateKeys.add(key);
+            }
+        }
+
+        var missing = new LinkedHashMap<Object, Object>();
+        var mismatched = new LinkedHashMap<Object, ModelComparator.ComparisonResult>();
+        for (var item : expected) {
+            var key = getKey(item);
+            var found = actualByKey.remove(key);
+            if (found == null) {
+                missing.put(key, item);
+                continue;
+            }
+            var rule = ModelComparisonRules.getRule(item.getClass());
+            if (rule == null) {
+                throw new AssertionError("No comparison rule found for class " + item.getClass().getSimpleName());
+            }
+            var result = ModelComparator.compare(item, found, rule);
+            if (!result.isSuccess()) {
+                mismatched.put(key, result);
+            }
+        }
+
+        // Оставшиеся в индексе элементы не ожидались; в нестрогом режиме они не считаются ошибкой
+        Map<Object, Object> unexpected = strict ? new LinkedHashMap<>(actualByKey) : Map.of();
+        return new CollectionComparisonResult(keyField, missing, unexpected, mismatched,
+                strict ? duplicateKeys : Set.of());
+    }
+
+    /**
+     * Streams the list of the raw response, keeping for each element only the key and
+     * the response fields of the rules of the expected classes.
+     *
+     * @return the extracted elements
+     */
+    private List<JsonNode> extractActualItems() {
+        var paths = new LinkedHashSet<String>();
+        paths.add(keyField);
+        expected.stream()
+                .map(Object::getClass)
+                .distinct()
+                .map(ModelComparisonRules::getRule)
+                .filter(Objects::nonNull)
+                .forEach(rule -> paths.addAll(rule.getResponseFields()));
+        return JsonPathExtractor.extractElements(actualResponse.asByteArray(), paths);
+    }
+
+    /**
+     * Reads the key of an item through the compiled accessor of its class, or by path
+     * for an element extracted from a raw response.
+     * <p>
+     * The key is normalized, see {@link #normalizeKey(Object)}, because the two sides may hold the same
+     * key in different types: TeamCity sends the id of a user as a JSON number, while the model declares
+     * it as a String.
+     * </p>
+     *
+     * @param item the model object or extracted JSON node
+     * @return the normalized key value
+     */
+    private Object getKey(Object item) {
+        Objects.requireNonNull(item, "Collections compared by key must not contain null items");
+        if (item instanceof JsonNode node) {
+            return normalizeKey(JsonPathExtractor.getValue(node, keyField.split("\\.")));
+        }
+        return normalizeKey(FieldPath.of(item.getClass(), keyField).get(item));
+    }
+
+    /**
+     * Converts a scalar key to its text form, so that keys are matched by the hash index regardless
+     * of their type: numbers (integral numbers without a fraction), booleans, enums and strings become
+     * strings. Other keys, such as lists of a collection path, are kept as they are.
+     *
+     * @param key the key value
+     * @return the normalized key value
+     */
+    private static Object normalizeKey(Object key) {
+        if (key instanceof Enum<?> constant) {
+            return constant.name();
+        }
+        if (key instanceof BigDecimal || key instanceof Double || key instanceof Float) {
+            // 5.0 и 5 - один и тот же ключ
+            return new BigDecimal(key.toString()).stripTrailingZeros().toPlainString();
+        }
+        if (key instanceof Number || key instanceof Boolean || key instanceof CharSequence) {
+            return key.toString();
+        }
+        if (key instanceof List<?> list) {
+            return list.stream().map(CollectionAssertions::normalizeKey).toList();
+        }
+        return key;
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.teamcity.api.models.comparison;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Aggregated result of a keyed collection comparison.
+ * <p>
+ * Contains expected items not found in the actual collection, actual items that were not
+ * expected (reported in strict mode only), duplicate actual keys, and the field mismatches
+ * of items found on both sides.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see CollectionAssertions
+ */
+public final class CollectionComparisonResult {
+
+    /**
+     * Name of the key field, used in the report.
+     */
+    private final String keyField;
+
+    /**
+     * Expected items not found in the actual collection, by key.
+     */
+    private final Map<Object, Object> missing;
+
+    /**
+     * Actual items without an expected counterpart, by key.
+     */
+    private final Map<Object, Object> unexpected;
+
+    /**
+     * Comparison results of items that did not match, by key.
+     */
+    private final Map<Object, ModelComparator.ComparisonResult> mismatched;
+
+    /**
+     * Keys found more than once in the actual collection.
+     */
+    private final Set<Object> duplicateKeys;
+
+    /**
+     * Constructs a new CollectionComparisonResult.
+     *
+     * @param keyField the name of the key field
+     * @param missing the missing expected items by key
+     * @param unexpected the unexpected actual items by key
+     * @param mismatched the mismatched items by key
+     * @param duplicateKeys the duplicate actual keys
+     */
+    CollectionComparisonResult(String keyField, Map<Object, Object> missing, Map<Object, Object> unexpected,
+                               Map<Object, ModelComparator.ComparisonResult> mismatched, Set<Object> duplicateKeys) {
+        this.keyField = keyField;
+        this.missing = missing;
+        this.unexpected = unexpected;
+        this.mismatched = mismatched;
+        this.duplicateKeys = duplicateKeys;
+    }
+
+    /**
+     * Determines if the comparison was successful.
+     *
+     * @return true if nothing is missing, unexpected, duplicated or mismatched
+     */
+    public boolean isSuccess() {
+        return missing.isEmpty() && unexpected.isEmpty() && mismatched.isEmpty() && duplicateKeys.isEmpty();
+    }
+
+    public Map<Object, Object> getMissing() {
+        return missing;
+    }
+
+    public Map<Object, Object> getUnexpected() {
+        return unexpected;
+    }
+
+    public Map<Object, ModelComparator.ComparisonResult> getMismatched() {
+        return mismatched;
+    }
+
+    public Set<Object> getDuplicateKeys() {
+        return duplicateKeys;
+    }
+
+    /**
+     * Returns a report listing every problem grouped by kind.
+     *
+     * @return a string representation of the comparison result
+     */
+    @Override
+    public String toString() {
+        if (isSuccess()) {
+            return "All items match.";
+        }
+        var sb = new StringBuilder();
+        if (!missing.isEmpty()) {
+            sb.append("Missing items (").append(missing.size()).append("):\n");
+            missing.forEach((key, item) -> sb.append("- ").append(keyField).append('=').append(key)
+                    .append(": ").append(item).append('\n'));
+        }
+        if (!unexpected.isEmpty()) {
+            sb.append("Unexpected items (").append(unexpected.size()).append("):\n");
+            unexpected.forEach((key, item) -> sb.append("- ").append(keyField).append('=').append(key)
+                    .append(": ").append(item).append('\n'));
+        }
+        if (!duplicateKeys.isEmpty()) {
+            sb.append("Duplicate keys (").append(duplicateKeys.size()).append("):\n");
+            duplicateKeys.forEach(key -> sb.append("- ").append(keyField).append('=').append(key).append('\n'));
+        }
+        if (!mismatched.isEmpty()) {
+            sb.append("Mismatched items (").append(mismatched.size()).append("):\n");
+            mismatched.forEach((key, result) -> result.getMismatches().forEach(m -> sb.append("- ")
+                    .append(keyField).append('=').append(key).append(", ").append(m.getFieldName())
+                    .append(": expected=").append(m.getExpected())
+                    .append(", actual=").append(m.getActual()).append('\n')));
+        }
+        return sb.toString();
+    }
+
+}
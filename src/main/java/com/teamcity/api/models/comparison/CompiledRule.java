@@ -0,0 +1,117 @@
+package com.teamcity.api.models.comparison;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * Comparison rule compiled for a specific pair of request and response classes.
+ * <p>
+ * The field paths of {@link ModelComparisonConfigLoader.ComparisonRule} are resolved into
+ * {@link FieldPath} accessor chains once, when the rule registry is loaded, so a missing field
+ * (including a nested one) is reported at startup and comparisons only invoke precompiled getters.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see ModelComparisonRules
+ * @see ModelComparator
+ */
+public final class CompiledRule {
+
+    /**
+     * Class of the response model the rule was compiled for.
+     */
+    private final Class<?> responseClass;
+
+    /**
+     * Request field paths, used in mismatch descriptions.
+     */
+    private final String[] requestFields;
+
+    /**
+     * Response field paths, used in mismatch descriptions.
+     */
+    private final String[] responseFields;
+
+    /**
+     * Accessor chains of the request fields.
+     */
+    private final FieldPath[] requestAccessors;
+
+    /**
+     * Accessor chains of the response fields.
+     */
+    private final FieldPath[] responseAccessors;
+
+    /**
+     * Segments of the response paths, used to read raw JSON bodies.
+     */
+    private final String[][] responseSegments;
+
+    /**
+     * Compiles the rule for the given classes.
+     *
+     * @param requestClass the class of the request model
+     * @param responseClass the class of the response model
+     * @param requestFields the request field paths
+     * @param responseFields the response field paths, in the same order
+     * @throws IllegalArgumentException if one of the paths cannot be resolved
+     */
+    CompiledRule(Class<?> requestClass, Class<?> responseClass, List<String> requestFields,
+                 List<String> responseFields) {
+        this.responseClass = responseClass;
+        this.requestFields = requestFields.toArray(String[]::new);
+        this.responseFields = responseFields.toArray(String[]::new);
+        this.requestAccessors = requestFields.stream()
+                .map(field -> FieldPath.of(requestClass, field))
+                .toArray(FieldPath[]::new);
+        this.responseAccessors = responseFields.stream()
+                .map(field -> FieldPath.of(responseClass, field))
+                .toArray(FieldPath[]::new);
+        this.responseSegments = responseFields.stream()
+                .map(field -> field.split("\\."))
+                .toArray(String[][]::new);
+    }
+
+    int size() {
+        return requestAccessors.length;
+    }
+
+    String getRequestField(int index) {
+        return requestFields[index];
+    }
+
+    String getResponseField(int index) {
+        return responseFields[index];
+    }
+
+    List<String> getResponseFields() {
+        return List.of(responseFields);
+    }
+
+    Object getRequestValue(int index, Object request) {
+        return requestAccessors[index].get(request);
+    }
+
+    /**
+     * Reads a response field. If the actual response class is not the one the rule was
+     * compiled for (or its subclass), the path is compiled for the actual class. A JSON node
+     * extracted from a raw response body is read by path without deserialization.
+     *
+     * @param index the index of the field
+     * @param response the response model or extracted JSON node
+     * @return the value of the field
+     */
+    Object getResponseValue(int index, Object response) {
+        if (response instanceof JsonNode node) {
+            return JsonPathExtractor.getValue(node, responseSegments[index]);
+        }
+        var accessor = responseClass.isInstance(response)
+                ? responseAccessors[index]
+                : FieldPath.of(response.getClass(), responseFields[index]);
+        return accessor.get(response);
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.teamcity.api.models.comparison;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precompiled getter of a single model field.
+ * <p>
+ * The field is looked up in the class hierarchy once, and its value is read through a MethodHandle
+ * afterward, so comparisons do not repeat getDeclaredField and setAccessible calls. Accessors are
+ * cached per class and field name.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see CompiledRule
+ */
+final class FieldAccessor {
+
+    /**
+     * Compiled accessors of every class, by field name.
+     */
+    private static final ClassValue<Map<String, FieldAccessor>> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Map<String, FieldAccessor> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * Name of the field.
+     */
+    private final String fieldName;
+
+    /**
+     * Getter of the field, adapted to the (Object)Object type.
+     */
+    private final MethodHandle getter;
+
+    /**
+     * Declared type of the field, used to resolve nested paths.
+     */
+    private final Type genericType;
+
+    private FieldAccessor(String fieldName, MethodHandle getter, Type genericType) {
+        this.fieldName = fieldName;
+        this.getter = getter;
+        this.genericType = genericType;
+    }
+
+    /**
+     * Gets the compiled accessor of the field, compiling it on first use.
+     *
+     * @param type the class declaring or inheriting the field
+     * @param fieldName the name of the field
+     * @return the accessor
+     * @throws IllegalArgumentException if the class has no such field
+     */
+    static FieldAccessor of(Class<?> type, String fieldName) {
+        return ACCESSORS.get(type).computeIfAbsent(fieldName, name -> compile(type, name));
+    }
+
+    /**
+     * Reads the field value.
+     *
+     * @param target the object to read the field from
+     * @return the value of the field
+     */
+    Object get(Object target) {
+        try {
+            return getter.invokeExact(target);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot access field: " + fieldName, e);
+        }
+    }
+
+    Type getGenericType() {
+        return genericType;
+    }
+
+    /**
+     * Finds the field in the class hierarchy, starting from the most specific class, and creates its getter.
+     *
+     * @param type the class to search
+     * @param fieldName the name of the field
+     * @return the accessor
+     */
+    private static FieldAccessor compile(Class<?> type, String fieldName) {
+        for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+            try {
+                var field = clazz.getDeclaredField(fieldName);
+                var getter = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup())
+                        .unreflectGetter(field)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+                return new FieldAccessor(fieldName, getter, field.getGenericType());
+            } catch (NoSuchFieldException e) {
+                // Поле может быть объявлено в родительском классе, продолжаем поиск
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot access field: " + fieldName, e);
+            }
+        }
+        throw new IllegalArgumentException("Field not found: " + fieldName + " in class " + type.getName());
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.teamcity.api.models.comparison;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precompiled chain of field accessors for a dotted path such as {@code project.id} or {@code steps.step.name}.
+ * <p>
+ * Every segment is resolved against the declared type of the previous one when the path is compiled,
+ * so a rule naming a missing nested field fails at startup. When a segment is a collection, the
+ * following segments are applied to each of its elements and the value of the path becomes a list,
+ * which {@link ModelComparator} compares element-wise.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see FieldAccessor
+ * @see CompiledRule
+ */
+final class FieldPath {
+
+    /**
+     * Compiled paths of every class, by path.
+     */
+    private static final ClassValue<Map<String, FieldPath>> PATHS = new ClassValue<>() {
+        @Override
+        protected Map<String, FieldPath> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * The dotted path.
+     */
+    private final String path;
+
+    /**
+     * Accessors of the path segments, in order.
+     */
+    private final FieldAccessor[] segments;
+
+    private FieldPath(String path, FieldAccessor[] segments) {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    /**
+     * Gets the compiled path, compiling it on first use.
+     *
+     * @param type the class the path starts from
+     * @param path the dotted path
+     * @return the compiled path
+     * @throws IllegalArgumentException if a segment cannot be resolved
+     */
+    static FieldPath of(Class<?> type, String path) {
+        return PATHS.get(type).computeIfAbsent(path, p -> compile(type, p));
+    }
+
+    /**
+     * Reads the value of the path. A null intermediate value makes the whole value null;
+     * a collection segment makes it a list with one value per element.
+     *
+     * @param target the object to read the path from
+     * @return the value of the path
+     */
+    Object get(Object target) {
+        Object value = target;
+        for (var segment : segments) {
+            value = read(segment, value);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    private static Object read(FieldAccessor segment, Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Collection<?> elements) {
+            var values = new ArrayList<>(elements.size());
+            for (var element : elements) {
+                values.add(read(segment, element));
+            }
+            return values;
+        }
+        return segment.get(value);
+    }
+
+    /**
+     * Resolves every segment against the declared type of the previous one.
+     *
+     * @param type the class the path starts from
+     * @param path the dotted path
+     * @return the compiled path
+     */
+    private static FieldPath compile(Class<?> type, String path) {
+        var names = path.split("\\.");
+        var segments = new FieldAccessor[names.length];
+        Class<?> current = type;
+        for (var i = 0; i < names.length; i++) {
+            if (current == null) {
+                throw new IllegalArgumentException("Cannot resolve path " + path + " in class " + type.getName()
+                        + ": type of segment " + names[i - 1] + " is not a model class");
+            }
+            segments[i] = FieldAccessor.of(current, names[i]);
+            current = getValueClass(segments[i].getGenericType());
+        }
+        return new FieldPath(path, segments);
+    }
+
+    /**
+     * Gets the class the next segment is resolved against: the element class for collections,
+     * the field class otherwise.
+     *
+     * @param type the declared type of the field
+     * @return the class, or null if it cannot be determined
+     */
+    private static Class<?> getValueClass(Type type) {
+        if (type instanceof Class<?> clazz) {
+            return Collection.class.isAssignableFrom(clazz) ? null : clazz;
+        }
+        if (type instanceof ParameterizedType parameterized
+                && parameterized.getRawType() instanceof Class<?> raw) {
+            if (Collection.class.isAssignableFrom(raw)) {
+                return getValueClass(parameterized.getActualTypeArguments()[0]);
+            }
+            return raw;
+        }
+        return null;
+    }
+
+}
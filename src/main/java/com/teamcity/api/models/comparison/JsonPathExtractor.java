@@ -0,0 +1,201 @@
+package com.teamcity.api.models.comparison;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts only the fields named by comparison rules from a raw JSON body.
+ * <p>
+ * The body is read with the Jackson streaming parser. Subtrees that are not a prefix of any requested
+ * path are skipped without being materialized, so for a search response with thousands of entries only
+ * a small node per entry is built, holding the key and the compared fields, instead of a full model
+ * graph. Values of the extracted nodes are read by {@link #getValue(JsonNode, String[])} with the same
+ * collection semantics as {@link FieldPath}.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see CompiledRule
+ * @see CollectionAssertions
+ */
+final class JsonPathExtractor {
+
+    /**
+     * Mapper used to create parsers that can read the requested subtrees.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Private constructor to prevent instantiation of utility class.
+     */
+    private JsonPathExtractor() {
+    }
+
+    /**
+     * Extracts the requested paths of a single JSON object.
+     *
+     * @param body the raw JSON body
+     * @param paths the dotted paths to keep
+     * @return a node containing only the requested paths
+     */
+    static JsonNode extract(byte[] body, Collection<String> paths) {
+        try (var parser = MAPPER.createParser(body)) {
+            parser.nextToken();
+            return readPruned(parser, PathTree.of(paths));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot parse response body", e);
+        }
+    }
+
+    /**
+     * Extracts the requested paths of every element of the list in a search response
+     * ({@code {"count":2,"project":[...]}}), that is of the first top-level array.
+     * TeamCity omits the array for an empty result, in which case the list is empty.
+     *
+     * @param body the raw JSON body
+     * @param paths the dotted paths to keep for each element
+     * @return nodes of the list elements containing only the requested paths
+     */
+    static List<JsonNode> extractElements(byte[] body, Collection<String> paths) {
+        var tree = PathTree.of(paths);
+        var elements = new ArrayList<JsonNode>();
+        try (var parser = MAPPER.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Response body is not a JSON object");
+            }
+            var found = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var token = parser.nextToken();
+                if (!found && token == JsonToken.START_ARRAY) {
+                    found = true;
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        elements.add(readPruned(parser, tree));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot parse response body", e);
+        }
+        return elements;
+    }
+
+    /**
+     * Reads the value of a path from an extracted node. A collection in the path makes the value a list
+     * with one value per element; a missing or null intermediate value makes it null.
+     *
+     * @param node the extracted node
+     * @param segments the path segments
+     * @return the value converted to String, Number, Boolean, List or (for objects) JsonNode
+     */
+    static Object getValue(JsonNode node, String[] segments) {
+        return getValue(node, segments, 0);
+    }
+
+    private static Object getValue(JsonNode node, String[] segments, int index) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            return null;
+        }
+        if (node.isArray()) {
+            var values = new ArrayList<>(node.size());
+            node.forEach(element -> values.add(getValue(element, segments, index)));
+            return values;
+        }
+        if (index == segments.length) {
+            return toValue(node);
+        }
+        return node.isObject() ? getValue(node.get(segments[index]), segments, index + 1) : null;
+    }
+
+    private static Object toValue(JsonNode node) {
+        if (node.isTextual()) {
+            return node.textValue();
+        }
+        if (node.isNumber()) {
+            return node.numberValue();
+        }
+        if (node.isBoolean()) {
+            return node.booleanValue();
+        }
+        return node;
+    }
+
+    /**
+     * Reads the current value, keeping only the subtrees requested by the path tree.
+     *
+     * @param parser the parser positioned at the start of the value
+     * @param tree the requested paths below the value
+     * @return the pruned node
+     * @throws IOException if the body cannot be parsed
+     */
+    private static JsonNode readPruned(JsonParser parser, PathTree tree) throws IOException {
+        if (tree.isLeaf() || parser.currentToken().isScalarValue()) {
+            JsonNode value = parser.readValueAsTree();
+            return value == null ? JsonNodeFactory.instance.nullNode() : value;
+        }
+        if (parser.currentToken() == JsonToken.START_ARRAY) {
+            var array = JsonNodeFactory.instance.arrayNode();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                array.add(readPruned(parser, tree));
+            }
+            return array;
+        }
+        var object = JsonNodeFactory.instance.objectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var child = tree.getChild(parser.currentName());
+            parser.nextToken();
+            if (child == null) {
+                // Поле не участвует в сравнении, пропускаем его поддерево без построения узлов
+                parser.skipChildren();
+            } else {
+                object.set(parser.currentName(), readPruned(parser, child));
+            }
+        }
+        return object;
+    }
+
+    /**
+     * Prefix tree of the requested paths.
+     */
+    private static final class PathTree {
+
+        private final Map<String, PathTree> children = new HashMap<>();
+
+        private boolean leaf;
+
+        static PathTree of(Collection<String> paths) {
+            var root = new PathTree();
+            for (var path : paths) {
+                var node = root;
+                for (var segment : path.split("\\.")) {
+                    node = node.children.computeIfAbsent(segment, s -> new PathTree());
+                }
+                node.leaf = true;
+            }
+            return root;
+        }
+
+        boolean isLeaf() {
+            return leaf;
+        }
+
+        PathTree getChild(String name) {
+            return children.get(name);
+        }
+
+    }
+
+}
@@ -1,22 +1,26 @@
 package com.teamcity.api.models.comparison;
 
+import io.restassured.response.Response;
+
+import java.util.Collection;
+
 /**
  * Fluent assertion class for comparing model objects.
  * <p>
  * This class provides a fluent API for comparing request and response model objects
- * based on configurable field mappings. It uses the ModelComparisonConfigLoader to
+ * based on configurable field mappings. It uses the ModelComparisonRules registry to
  * determine which fields should be compared and how they should be mapped.
  * </p>
  *
  * <p>
- * The comparison is performed using reflection to access field values and compare
- * them according to the rules defined in the model-comparison.properties file.
+ * The rules defined in the model-comparison.properties file are loaded and compiled
+ * into field accessors once, so an assertion only reads and compares field values.
  * </p>
  *
  * @author TeamCity Testing Framework
  * @version 1.0
  * @since 1.0
- * @see ModelComparisonConfigLoader
+ * @see ModelComparisonRules
  * @see ModelComparator
  */
 public final class ModelAssertions {
@@ -60,11 +64,58 @@ public final class ModelAssertions {
         return new ModelAssertions(request, response);
     }
 
+    /**
+     * Creates a new ModelAssertions instance comparing the request object with a raw response body.
+     * <p>
+     * Only the fields named in the comparison rule are read from the body with a streaming
+     * JSON parser, without deserializing the response into a model.
+     * </p>
+     *
+     * @param request the request model object to compare
+     * @param response the raw response whose body is compared against
+     * @return a new ModelAssertions instance
+     */
+    public static ModelAssertions assertThatResponse(Object request, Response response) {
+        return new ModelAssertions(request, response);
+    }
+
+    /**
+     * Creates a new CollectionAssertions instance for the given collections of model objects.
+     * <p>
+     * Items are paired by the field set with keyedBy() and compared with the same rules
+     * as assertThatModels(), for example
+     * {@code assertThatCollections(created, found).keyedBy("id").match()}.
+     * </p>
+     *
+     * @param expected the expected model objects
+     * @param actual the actual model objects
+     * @return a new CollectionAssertions instance
+     */
+    public static CollectionAssertions assertThatCollections(Collection<?> expected, Collection<?> actual) {
+        return new CollectionAssertions(expected, actual);
+    }
+
+    /**
+     * Creates a new CollectionAssertions instance comparing model objects with the list in a raw
+     * search response body.
+     * <p>
+     * Each element of the list is streamed and only its key and the fields named in the comparison
+     * rules are kept, so large search responses are compared without building their model graph.
+     * </p>
+     *
+     * @param expected the expected model objects
+     * @param actual the raw search response
+     * @return a new CollectionAssertions instance
+     */
+    public static CollectionAssertions assertThatCollections(Collection<?> expected, Response actual) {
+        return new CollectionAssertions(expected, actual);
+    }
+
     /**
      * Performs the model comparison and throws an AssertionError if fields don't match.
      * <p>
-     * This method loads the comparison configuration, finds the appropriate rule
-     * for the request class, and compares the specified fields. If any fields
+     * This method finds the compiled rule for the request class
+     * and compares the specified fields. If any fields
      * don't match, an AssertionError is thrown with detailed information about
      * the mismatches.
      * </p>
@@ -73,15 +124,15 @@ public final class ModelAssertions {
      * @throws AssertionError if the model comparison fails or no rule is found
      */
     public ModelAssertions match() {
-        ModelComparisonConfigLoader configLoader = new ModelComparisonConfigLoader("model-comparison.properties");
-        ModelComparisonConfigLoader.ComparisonRule rule = configLoader.getRuleFor(request.getClass());
+        // Правила загружаются и компилируются один раз на JVM, здесь только берется готовое
+        CompiledRule rule = ModelComparisonRules.getRule(request.getClass());
 
         if (rule != null) {
-            ModelComparator.ComparisonResult result = ModelComparator.compareFields(
-                    request,
-                    response,
-                    rule.getFieldMappings()
-            );
+            // Из сырого тела ответа парсятся только поля из правила, модель целиком не десериализуется
+            Object actual = response instanceof Response rawResponse
+                    ? JsonPathExtractor.extract(rawResponse.asByteArray(), rule.getResponseFields())
+                    : response;
+            ModelComparator.ComparisonResult result = ModelComparator.compare(request, actual, rule);
 
             if (!result.isSuccess()) {
                 throw new AssertionError("Model comparison failed with mismatched fields:\n" + result);
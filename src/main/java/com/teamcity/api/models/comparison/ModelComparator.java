@@ -1,17 +1,18 @@
 package com.teamcity.api.models.comparison;
 
-import java.lang.reflect.Field;
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 
 /**
  * Utility class for comparing model objects using reflection.
  * <p>
  * This class provides methods for comparing fields between two objects using
- * configurable field mappings. It uses reflection to access field values
- * and compares them as strings for consistency.
+ * configurable field mappings. Field values are read through precompiled
+ * accessor chains, so nested paths such as {@code project.id} are supported,
+ * and compared by type rather than as strings.
  * </p>
  *
  * <p>
@@ -39,15 +40,16 @@ public final class ModelComparator {
      * Compares fields between two objects based on the provided field mappings.
      * <p>
      * This method iterates through the field mappings and compares the corresponding
-     * fields in the request and response objects. All values are converted to strings
-     * for comparison to ensure consistency.
+     * fields in the request and response objects. Field names may be dotted paths
+     * such as {@code project.id}; values are compared type-aware, and collections
+     * are compared element-wise.
      * </p>
      *
      * @param <A> the type of the request object
      * @param <B> the type of the response object
      * @param request the request object to compare
      * @param response the response object to compare against
-     * @param fieldMappings map of request field names to response field names
+     * @param fieldMappings map of request field paths to response field paths
      * @return a ComparisonResult containing any mismatches found
      */
     public static <A, B> ComparisonResult compareFields(A request, B response, Map<String, String> fieldMappings) {
@@ -57,44 +59,144 @@ public final class ModelComparator {
             String requestField = entry.getKey();
             String responseField = entry.getValue();
 
-            Object value1 = getFieldValue(request, requestField);
-            Object value2 = getFieldValue(response, responseField);
+            Object value1 = FieldPath.of(request.getClass(), requestField).get(request);
+            Object value2 = FieldPath.of(response.getClass(), responseField).get(response);
 
-            if (!Objects.equals(String.valueOf(value1), String.valueOf(value2))) {
-                mismatches.add(new Mismatch(requestField + " -> " + responseField, value1, value2));
-            }
+            compareValues(requestField + " -> " + responseField, value1, value2, mismatches);
         }
 
         return new ComparisonResult(mismatches);
     }
 
     /**
-     * Retrieves the value of a field from an object using reflection.
+     * Compares two objects using a compiled rule.
      * <p>
-     * This method searches for the field in the object's class hierarchy,
-     * starting from the most specific class and moving up to parent classes.
-     * The field is made accessible before reading its value.
+     * Field values are read through the precompiled accessor chains of the rule. A null response
+     * is reported as a single mismatch instead of failing with an exception.
      * </p>
      *
-     * @param obj the object to read the field from
-     * @param fieldName the name of the field to read
-     * @return the value of the field
-     * @throws RuntimeException if the field cannot be found or accessed
+     * @param request the request object to compare
+     * @param response the response object to compare against
+     * @param rule the compiled rule for the request class
+     * @return a ComparisonResult containing any mismatches found
      */
-    private static Object getFieldValue(Object obj, String fieldName) {
-        Class<?> clazz = obj.getClass();
-        while (clazz != null) {
+    static ComparisonResult compare(Object request, Object response, CompiledRule rule) {
+        List<Mismatch> mismatches = new ArrayList<>();
+        if (response == null) {
+            mismatches.add(new Mismatch("response", request, null));
+            return new ComparisonResult(mismatches);
+        }
+
+        for (var index = 0; index < rule.size(); index++) {
+            Object value1 = rule.getRequestValue(index, request);
+            Object value2 = rule.getResponseValue(index, response);
+
+            compareValues(rule.getRequestField(index) + " -> " + rule.getResponseField(index), value1, value2,
+                    mismatches);
+        }
+
+        return new ComparisonResult(mismatches);
+    }
+
+    /**
+     * Compares two field values and adds a mismatch for every difference.
+     * <p>
+     * Collections are compared element by element, so a mismatch names the index
+     * of the differing element; a size difference is reported separately.
+     * </p>
+     *
+     * @param fieldName the description of the compared fields
+     * @param expected the value of the request field
+     * @param actual the value of the response field
+     * @param mismatches the list to add mismatches to
+     */
+    private static void compareValues(String fieldName, Object expected, Object actual, List<Mismatch> mismatches) {
+        if (expected instanceof Collection<?> expectedElements && actual instanceof Collection<?> actualElements) {
+            var expectedIterator = expectedElements.iterator();
+            var actualIterator = actualElements.iterator();
+            for (var index = 0; expectedIterator.hasNext() && actualIterator.hasNext(); index++) {
+                compareValues(fieldName + "[" + index + "]", expectedIterator.next(), actualIterator.next(),
+                        mismatches);
+            }
+            if (expectedElements.size() != actualElements.size()) {
+                mismatches.add(new Mismatch(fieldName + ".size", expectedElements.size(), actualElements.size()));
+            }
+        } else if (!valuesEqual(expected, actual)) {
+            mismatches.add(new Mismatch(fieldName, expected, actual));
+        }
+    }
+
+    /**
+     * Checks two values for equality without converting them to strings.
+     * <p>
+     * Numbers of different types are compared by value (so {@code 1} equals {@code 1L}),
+     * and an enum equals a string with its name. A number or boolean equals a string with the same
+     * value: values read from a raw response keep their JSON type, while the model field is usually
+     * a String, which Jackson fills with the text of the value in model mode. Other values are
+     * compared with equals().
+     * </p>
+     *
+     * @param expected the first value
+     * @param actual the second value
+     * @return true if the values are equal
+     */
+    private static boolean valuesEqual(Object expected, Object actual) {
+        if (expected == actual) {
+            return true;
+        }
+        if (expected == null || actual == null) {
+            return false;
+        }
+        if (expected instanceof Number first && actual instanceof Number second
+                && first.getClass() != second.getClass()) {
+            return isIntegral(first) && isIntegral(second)
+                    ? first.longValue() == second.longValue()
+                    : Double.compare(first.doubleValue(), second.doubleValue()) == 0;
+        }
+        if (expected instanceof Enum<?> constant && actual instanceof String name) {
+            return constant.name().equals(name);
+        }
+        if (expected instanceof String name && actual instanceof Enum<?> constant) {
+            return constant.name().equals(name);
+        }
+        if (expected instanceof String text && isJsonScalar(actual)) {
+            return scalarEqualsText(actual, text);
+        }
+        if (actual instanceof String text && isJsonScalar(expected)) {
+            return scalarEqualsText(expected, text);
+        }
+        return expected.equals(actual);
+    }
+
+    private static boolean isJsonScalar(Object value) {
+        return value instanceof Number || value instanceof Boolean;
+    }
+
+    /**
+     * Compares a number or boolean with a string the way Jackson coerces it to a String field.
+     *
+     * @param scalar the number or boolean
+     * @param text the string
+     * @return true if the string is the text of the value, or a number equal to it
+     */
+    private static boolean scalarEqualsText(Object scalar, String text) {
+        if (scalar.toString().equals(text)) {
+            return true;
+        }
+        if (scalar instanceof Number number) {
             try {
-                Field field = clazz.getDeclaredField(fieldName);
-                field.setAccessible(true);
-                return field.get(obj);
-            } catch (NoSuchFieldException e) {
-                clazz = clazz.getSuperclass();
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException("Cannot access field: " + fieldName, e);
+                // "5.0" и 5, "1e2" и 100 - одно и то же число
+                return new BigDecimal(text.trim()).compareTo(new BigDecimal(number.toString())) == 0;
+            } catch (NumberFormatException e) {
+                return false;
             }
         }
-        throw new RuntimeException("Field not found: " + fieldName + " in class " + obj.getClass().getName());
+        return false;
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short
+                || number instanceof Byte;
     }
 
     /**
@@ -85,6 +85,15 @@ public final class ModelComparisonConfigLoader {
         return rules.get(requestClass.getSimpleName());
     }
 
+    /**
+     * Gets all loaded rules.
+     *
+     * @return the map of request class simple names to their comparison rules
+     */
+    public Map<String, ComparisonRule> getRules() {
+        return Map.copyOf(rules);
+    }
+
     /**
      * Represents a comparison rule for a specific model class.
      * <p>
@@ -0,0 +1,102 @@
+package com.teamcity.api.models.comparison;
+
+import com.teamcity.api.models.BaseModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registry of compiled comparison rules, loaded once per JVM.
+ * <p>
+ * model-comparison.properties is read and parsed only once, and every rule is compiled into
+ * {@link CompiledRule} accessor arrays. Rule names are resolved to classes of the models package.
+ * All problems (unknown classes, missing fields) are collected and reported together when the
+ * registry is loaded, which happens at suite start through {@link #validate()}.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see ModelComparisonConfigLoader
+ * @see CompiledRule
+ */
+public final class ModelComparisonRules {
+
+    /**
+     * Name of the comparison configuration file in the classpath.
+     */
+    private static final String CONFIG_FILE = "model-comparison.properties";
+
+    /**
+     * Compiled rules by request class.
+     */
+    private static final Map<Class<?>, CompiledRule> RULES = compile(new ModelComparisonConfigLoader(CONFIG_FILE));
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ModelComparisonRules() {
+    }
+
+    /**
+     * Loads and validates the rules. Fails if any rule refers to a missing class or field.
+     */
+    public static void validate() {
+        // Валидация выполняется при инициализации класса, достаточно к нему обратиться
+        RULES.size();
+    }
+
+    /**
+     * Gets the compiled rule for the request class.
+     *
+     * @param requestClass the class of the request model
+     * @return the compiled rule, or null if no rule is configured for the class
+     */
+    public static CompiledRule getRule(Class<?> requestClass) {
+        return RULES.get(requestClass);
+    }
+
+    /**
+     * Compiles all rules of the loader.
+     *
+     * @param configLoader the loaded configuration
+     * @return the compiled rules by request class
+     * @throws IllegalStateException with all found problems if any rule is invalid
+     */
+    private static Map<Class<?>, CompiledRule> compile(ModelComparisonConfigLoader configLoader) {
+        var rules = new HashMap<Class<?>, CompiledRule>();
+        var problems = new ArrayList<String>();
+        configLoader.getRules().forEach((requestClassName, rule) -> {
+            try {
+                var requestClass = getModelClass(requestClassName);
+                var responseClass = getModelClass(rule.getResponseClassSimpleName());
+                var requestFields = new ArrayList<>(rule.getFieldMappings().keySet());
+                var responseFields = requestFields.stream().map(rule.getFieldMappings()::get).toList();
+                rules.put(requestClass, new CompiledRule(requestClass, responseClass, requestFields, responseFields));
+            } catch (IllegalArgumentException e) {
+                problems.add(requestClassName + ": " + e.getMessage());
+            }
+        });
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Invalid rules in " + CONFIG_FILE + ":\n" + String.join("\n", problems));
+        }
+        return Map.copyOf(rules);
+    }
+
+    /**
+     * Resolves a simple class name of the rule to a class of the models package.
+     *
+     * @param simpleName the simple class name
+     * @return the model class
+     * @throws IllegalArgumentException if there is no such model class
+     */
+    private static Class<?> getModelClass(String simpleName) {
+        try {
+            return Class.forName(BaseModel.class.getPackageName() + "." + simpleName);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Model class not found: " + simpleName, e);
+        }
+    }
+
+}
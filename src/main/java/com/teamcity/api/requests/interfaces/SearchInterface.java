@@ -33,4 +33,16 @@ public interface SearchInterface {
      */
     Object search();
 
+    /**
+     * Performs a search operation restricted by a TeamCity locator.
+     * <p>
+     * The locator is passed as the locator query parameter, for example
+     * {@code name:(value:test_,matchType:starts-with),count:100,start:0}.
+     * </p>
+     *
+     * @param locator the TeamCity locator restricting the search
+     * @return the response from the search operation, typically a collection of matching entities
+     */
+    Object search(String locator);
+
 }
@@ -7,6 +7,7 @@ import com.teamcity.api.requests.interfaces.CrudInterface;
 import com.teamcity.api.requests.Request;
 import com.teamcity.api.requests.interfaces.SearchInterface;
 import com.teamcity.api.requests.withoutS.Requester;
+import io.restassured.response.Response;
 import io.restassured.specification.RequestSpecification;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
@@ -58,7 +59,8 @@ public final class RequesterWithS<T extends BaseModel> extends Request implement
                 .then().assertThat().statusCode(HttpStatus.SC_OK)
                 .extract().as(endpoint.getModelClass());
         // После создания сущности ее айди добавляется в список созданных сущностей (для их удаления в конце)
-        TestDataStorage.getStorage().addCreatedEntity(endpoint, createdModel);
+        // Реквест передается для того, чтобы определить родителя сущности (например, parentProject у проекта)
+        TestDataStorage.getStorage().addCreatedEntity(endpoint, model, createdModel);
         return createdModel;
     }
 
@@ -95,4 +97,29 @@ public final class RequesterWithS<T extends BaseModel> extends Request implement
                 .getList(StringUtils.uncapitalize(endpoint.getModelClass().getSimpleName()), endpoint.getModelClass());
     }
 
+    @Override
+    public List<T> search(String locator) {
+        return (List<T>) requester
+                .search(locator)
+                .then().assertThat().statusCode(HttpStatus.SC_OK)
+                .extract().jsonPath()
+                .getList(StringUtils.uncapitalize(endpoint.getModelClass().getSimpleName()), endpoint.getModelClass());
+    }
+
+    // Для больших результатов поиска: статус проверяется, но тело не десериализуется в модели,
+    // его можно сравнить потоково через ModelAssertions.assertThatCollections(expected, response)
+    public Response searchResponse() {
+        return requester
+                .search()
+                .then().assertThat().statusCode(HttpStatus.SC_OK)
+                .extract().response();
+    }
+
+    public Response searchResponse(String locator) {
+        return requester
+                .search(locator)
+                .then().assertThat().statusCode(HttpStatus.SC_OK)
+                .extract().response();
+    }
+
 }
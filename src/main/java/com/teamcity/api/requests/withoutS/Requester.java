@@ -80,4 +80,13 @@ public final class Requester extends Request implements CrudInterface, SearchInt
                 .get(endpoint.getUrl());
     }
 
+    @Override
+    @Step("Search models by {locator}")
+    public Response search(String locator) {
+        return RestAssured.given()
+                .spec(spec)
+                .queryParam("locator", locator)
+                .get(endpoint.getUrl());
+    }
+
 }
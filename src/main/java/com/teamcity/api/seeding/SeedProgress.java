@@ -0,0 +1,194 @@
+package com.teamcity.api.seeding;
+
+import com.teamcity.api.enums.Endpoint;
+import org.apache.commons.lang3.RandomStringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Progress and teardown manifest of a seeding run, persisted in the seed directory.
+ * <p>
+ * The progress file starts with the run ID and lists every created entity, one "ENDPOINT id" per
+ * line. A restarted seeder reuses the run ID, so it generates the same IDs again and skips the
+ * entities that are already listed. The manifest lists only the entities that have to be deleted
+ * explicitly on teardown: top-level projects (subprojects and build configurations are deleted by
+ * the server together with them) and users.
+ * </p>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see ServerSeeder
+ */
+final class SeedProgress implements AutoCloseable {
+
+    /**
+     * Prefix of the first line of the progress file.
+     */
+    private static final String RUN_ID_HEADER = "runId=";
+
+    /**
+     * Prefix of the run ID. Unlike {@link com.teamcity.api.generators.RandomData#TEST_PREFIX}, it is not
+     * matched by the OrphanSweeper, which would otherwise delete the seeded data set at the next suite start.
+     */
+    private static final String RUN_ID_PREFIX = "seed_";
+
+    /**
+     * Number of random characters in the run ID.
+     */
+    private static final int RUN_ID_LENGTH = 10;
+
+    /**
+     * ID of the run, used as the prefix of every seeded entity ID.
+     */
+    private final String runId;
+
+    /**
+     * Created entities in the "ENDPOINT id" format.
+     */
+    private final Set<String> createdEntities = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Writer of the progress file.
+     */
+    private final BufferedWriter progressWriter;
+
+    /**
+     * Writer of the teardown manifest.
+     */
+    private final BufferedWriter manifestWriter;
+
+    private SeedProgress(String runId, BufferedWriter progressWriter, BufferedWriter manifestWriter) {
+        this.runId = runId;
+        this.progressWriter = progressWriter;
+        this.manifestWriter = manifestWriter;
+    }
+
+    /**
+     * Opens the progress of the run in the directory, starting a new run if there is none.
+     *
+     * @param directory the seed directory
+     * @return the progress of the run
+     */
+    static SeedProgress open(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            var progressFile = getProgressFile(directory);
+            var lines = Files.exists(progressFile) ? Files.readAllLines(progressFile) : List.<String>of();
+            // Сущности сидинга не журналируются, поэтому префикс run ID не должен совпадать с тестовым:
+            // иначе OrphanSweeper удалит весь набор данных как брошенные тестовые сущности
+            var runId = lines.isEmpty()
+                    ? RUN_ID_PREFIX + RandomStringUtils.secure().nextAlphabetic(RUN_ID_LENGTH)
+                    : lines.get(0).substring(RUN_ID_HEADER.length());
+            var progress = new SeedProgress(runId,
+                    Files.newBufferedWriter(progressFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                    Files.newBufferedWriter(getManifestFile(directory), StandardOpenOption.CREATE,
+                            StandardOpenOption.APPEND));
+            if (lines.isEmpty()) {
+                progress.write(progress.progressWriter, RUN_ID_HEADER + runId);
+            } else {
+                progress.createdEntities.addAll(lines.subList(1, lines.size()));
+            }
+            return progress;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open seed progress in " + directory, e);
+        }
+    }
+
+    /**
+     * Reads the teardown manifest of the run in the directory.
+     *
+     * @param directory the seed directory
+     * @return the manifest lines in the "ENDPOINT id" format
+     */
+    static List<String> readManifest(Path directory) {
+        try {
+            var manifestFile = getManifestFile(directory);
+            return Files.exists(manifestFile) ? Files.readAllLines(manifestFile) : List.of();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read seed manifest in " + directory, e);
+        }
+    }
+
+    /**
+     * Removes the progress and the manifest after a complete teardown.
+     *
+     * @param directory the seed directory
+     */
+    static void delete(Path directory) {
+        try {
+            Files.deleteIfExists(getProgressFile(directory));
+            Files.deleteIfExists(getManifestFile(directory));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete seed progress in " + directory, e);
+        }
+    }
+
+    String getRunId() {
+        return runId;
+    }
+
+    int getCreatedCount() {
+        return createdEntities.size();
+    }
+
+    boolean isCreated(Endpoint endpoint, String id) {
+        return createdEntities.contains(endpoint + " " + id);
+    }
+
+    /**
+     * Records a created entity.
+     *
+     * @param endpoint the endpoint of the entity
+     * @param id the ID (or the deterministic key) of the entity
+     * @param teardownId the ID to write to the teardown manifest, or null if the entity is deleted by cascade
+     */
+    void markCreated(Endpoint endpoint, String id, String teardownId) {
+        // Сначала манифест: сущность, попавшая в прогресс, но не в манифест, осталась бы неудаленной
+        if (teardownId != null) {
+            write(manifestWriter, endpoint + " " + teardownId);
+        }
+        if (createdEntities.add(endpoint + " " + id)) {
+            write(progressWriter, endpoint + " " + id);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            progressWriter.close();
+            manifestWriter.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close seed progress", e);
+        }
+    }
+
+    private void write(BufferedWriter writer, String line) {
+        synchronized (writer) {
+            try {
+                writer.write(line);
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write seed progress", e);
+            }
+        }
+    }
+
+    private static Path getProgressFile(Path directory) {
+        return directory.resolve("progress.txt");
+    }
+
+    private static Path getManifestFile(Path directory) {
+        return directory.resolve("manifest.txt");
+    }
+
+}
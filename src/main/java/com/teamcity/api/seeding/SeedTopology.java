@@ -0,0 +1,76 @@
+package com.teamcity.api.seeding;
+
+import com.teamcity.api.config.Config;
+
+import java.util.Map;
+
+/**
+ * Shape of the data created by {@link ServerSeeder}.
+ * <p>
+ * The seeder creates rootProjects top-level projects, each of them is the root of a tree with
+ * the given depth, where every project has fanOut subprojects. Every project contains
+ * buildTypesPerProject build configurations with stepsPerBuildType steps each. Users do not
+ * belong to projects and are created separately.
+ * </p>
+ *
+ * @param rootProjects the number of top-level projects
+ * @param depth the number of project levels, 1 means top-level projects only
+ * @param fanOut the number of subprojects of every non-leaf project
+ * @param buildTypesPerProject the number of build configurations in every project
+ * @param stepsPerBuildType the number of steps in every build configuration
+ * @param users the number of users
+ * @param parallelism the maximum number of concurrent create requests
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see ServerSeeder
+ */
+public record SeedTopology(int rootProjects, int depth, int fanOut, int buildTypesPerProject,
+                           int stepsPerBuildType, int users, int parallelism) {
+
+    /**
+     * Reads the topology from the seed* properties, overridden by the given values.
+     *
+     * @param overrides property values that take precedence over config.properties
+     * @return the topology
+     */
+    public static SeedTopology fromConfig(Map<String, String> overrides) {
+        return new SeedTopology(
+                getInt(overrides, "seedRootProjects"),
+                getInt(overrides, "seedDepth"),
+                getInt(overrides, "seedFanOut"),
+                getInt(overrides, "seedBuildTypesPerProject"),
+                getInt(overrides, "seedStepsPerBuildType"),
+                getInt(overrides, "seedUsers"),
+                getInt(overrides, "seedParallelism"));
+    }
+
+    /**
+     * Calculates the total number of projects in all trees.
+     *
+     * @return the number of projects
+     */
+    public long projectCount() {
+        long levelSize = rootProjects;
+        long total = 0;
+        for (var level = 0; level < depth; level++) {
+            total += levelSize;
+            levelSize *= fanOut;
+        }
+        return total;
+    }
+
+    /**
+     * Calculates the total number of entities, counting every build configuration and user.
+     *
+     * @return the number of entities
+     */
+    public long entityCount() {
+        return projectCount() * (1 + buildTypesPerProject) + users;
+    }
+
+    private static int getInt(Map<String, String> overrides, String key) {
+        return Integer.parseInt(overrides.getOrDefault(key, Config.getProperty(key)));
+    }
+
+}
@@ -0,0 +1,379 @@
+package com.teamcity.api.seeding;
+
+import com.teamcity.api.config.Config;
+import com.teamcity.api.enums.Endpoint;
+import com.teamcity.api.models.BuildType;
+import com.teamcity.api.models.NewProjectDescription;
+import com.teamcity.api.models.Project;
+import com.teamcity.api.models.Property;
+import com.teamcity.api.models.Step;
+import com.teamcity.api.models.Steps;
+import com.teamcity.api.models.User;
+import com.teamcity.api.requests.Requesters;
+import com.teamcity.api.spec.RequestSpecs;
+import io.restassured.response.Response;
+import org.apache.http.HttpStatus;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static com.teamcity.api.generators.TestDataGenerator.generate;
+
+/**
+ * Command-line tool that fills a TeamCity server with a large amount of data for scale and soak tests.
+ * <p>
+ * The shape of the data is described by {@link SeedTopology} (seed* properties, which can be overridden
+ * by key=value arguments). Projects are created level by level, so every parent exists before its
+ * subprojects, and all requests of a level are sent concurrently with at most seedParallelism requests
+ * in flight. Build configurations are not created one by one: a template project with the required
+ * build configurations and steps is created once, and every seeded project is created as a copy of it
+ * (sourceProject + copyAllAssociatedSettings), which takes a single request per project.
+ * </p>
+ *
+ * <p>
+ * Progress is persisted by {@link SeedProgress}: a restarted seeder continues the same run and skips the
+ * entities that already exist. Throughput is printed every few seconds. Seeded entities are not
+ * registered in TestDataStorage, they are deleted by the teardown command using the manifest.
+ * </p>
+ *
+ * <pre>{@code
+ * ./mvnw compile exec:java -Dexec.mainClass=com.teamcity.api.seeding.ServerSeeder \
+ *     -Dexec.args="seedDepth=3 seedFanOut=5"
+ * ./mvnw compile exec:java -Dexec.mainClass=com.teamcity.api.seeding.ServerSeeder -Dexec.args=teardown
+ * }</pre>
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see SeedTopology
+ * @see SeedProgress
+ */
+public final class ServerSeeder {
+
+    /**
+     * Interval between throughput reports.
+     */
+    private static final long REPORT_INTERVAL_SECONDS = 5;
+
+    /**
+     * Argument that deletes the seeded data instead of creating it.
+     */
+    private static final String TEARDOWN_ARGUMENT = "teardown";
+
+    /**
+     * Shape of the seeded data.
+     */
+    private final SeedTopology topology;
+
+    /**
+     * Persisted progress of the run.
+     */
+    private final SeedProgress progress;
+
+    /**
+     * Unchecked requesters of the super user, so that failed requests can be retried or skipped.
+     */
+    private final Requesters requesters;
+
+    /**
+     * Pool bounding the number of concurrent requests.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Descriptions of failed requests.
+     */
+    private final Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Number of entities created by this process, including copied build configurations.
+     */
+    private final AtomicLong createdEntities = new AtomicLong();
+
+    private ServerSeeder(SeedTopology topology, SeedProgress progress, Requesters requesters) {
+        this.topology = topology;
+        this.progress = progress;
+        this.requesters = requesters;
+        this.executor = Executors.newFixedThreadPool(topology.parallelism());
+    }
+
+    /**
+     * Seeds the server, or deletes the seeded data if the teardown argument is passed.
+     *
+     * @param args key=value overrides of the seed* properties and an optional teardown argument
+     */
+    public static void main(String[] args) {
+        var overrides = new HashMap<String, String>();
+        for (var arg : args) {
+            var separator = arg.indexOf('=');
+            if (separator > 0) {
+                overrides.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+        var directory = Paths.get(overrides.getOrDefault("seedDir", Config.getProperty("seedDir")));
+        var topology = SeedTopology.fromConfig(overrides);
+        var requesters = new Requesters(RequestSpecs.superUserSpec());
+        if (List.of(args).contains(TEARDOWN_ARGUMENT)) {
+            teardown(directory, topology.parallelism(), requesters);
+            return;
+        }
+        try (var progress = SeedProgress.open(directory)) {
+            new ServerSeeder(topology, progress, requesters).seed();
+        }
+    }
+
+    /**
+     * Creates all entities of the topology that do not exist yet.
+     */
+    private void seed() {
+        System.out.printf("Seeding run %s: %d projects, %d build types, %d users (%d entities already created)%n",
+                progress.getRunId(), topology.projectCount(), topology.projectCount() * topology.buildTypesPerProject(),
+                topology.users(), progress.getCreatedCount());
+        var startNanos = System.nanoTime();
+        var reporter = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().factory());
+        reporter.scheduleAtFixedRate(() -> report(startNanos), REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS,
+                TimeUnit.SECONDS);
+        try {
+            var templateId = topology.buildTypesPerProject() > 0 ? createTemplate() : null;
+            // Пользователи не зависят от проектов, поэтому создаются параллельно с деревом проектов
+            var users = IntStream.range(0, topology.users())
+                    .mapToObj(index -> CompletableFuture.runAsync(() -> createUser(index), executor))
+                    .toList();
+            createProjectTree(templateId);
+            users.forEach(CompletableFuture::join);
+        } finally {
+            reporter.shutdownNow();
+            executor.shutdown();
+        }
+        report(startNanos);
+        if (!failures.isEmpty()) {
+            failures.forEach(System.out::println);
+            throw new IllegalStateException(failures.size() + " entities were not created, rerun the seeder to resume");
+        }
+    }
+
+    /**
+     * Creates the project tree level by level, skipping the subtrees of projects that failed.
+     *
+     * @param templateId the ID of the template project to copy, or null to create empty projects
+     */
+    private void createProjectTree(String templateId) {
+        // Ключ - id проекта, значение - id родителя (null для проектов верхнего уровня)
+        var level = new HashMap<String, String>();
+        IntStream.range(0, topology.rootProjects())
+                .forEach(index -> level.put(progress.getRunId() + "_p" + index, null));
+        for (var depth = 0; depth < topology.depth() && !level.isEmpty(); depth++) {
+            var createdProjects = ConcurrentHashMap.<String>newKeySet();
+            level.entrySet().stream()
+                    .map(project -> CompletableFuture.runAsync(() -> {
+                        if (createProject(project.getKey(), project.getValue(), templateId)) {
+                            createdProjects.add(project.getKey());
+                        }
+                    }, executor))
+                    .toList()
+                    .forEach(CompletableFuture::join);
+            var nextLevel = getNextLevel(createdProjects);
+            level.clear();
+            level.putAll(nextLevel);
+        }
+    }
+
+    /**
+     * Builds the IDs of the subprojects of the given projects.
+     *
+     * @param parents the IDs of the parent projects
+     * @return the subproject IDs mapped to their parent IDs
+     */
+    private Map<String, String> getNextLevel(Set<String> parents) {
+        var nextLevel = new HashMap<String, String>();
+        parents.forEach(parent -> IntStream.range(0, topology.fanOut())
+                .forEach(index -> nextLevel.put(parent + "_" + index, parent)));
+        return nextLevel;
+    }
+
+    /**
+     * Creates the template project with the build configurations that every seeded project gets.
+     *
+     * @return the ID of the template project
+     */
+    private String createTemplate() {
+        var templateId = progress.getRunId() + "_template";
+        if (!createProject(templateId, null, null)) {
+            throw new IllegalStateException("Cannot create seed template project " + templateId);
+        }
+        // Шаблон создается до всех остальных сущностей и в счетчик сущностей топологии не входит
+        createdEntities.set(0);
+        for (var index = 0; index < topology.buildTypesPerProject(); index++) {
+            var buildTypeId = templateId + "_bt" + index;
+            if (progress.isCreated(Endpoint.BUILD_TYPES, buildTypeId)) {
+                continue;
+            }
+            var steps = new ArrayList<Step>();
+            for (var stepIndex = 0; stepIndex < topology.stepsPerBuildType(); stepIndex++) {
+                steps.add(generate(Step.class, List.of(
+                        generate(Property.class, "script.content", "echo 'Step " + stepIndex + "'"),
+                        generate(Property.class, "use.custom.script", "true"))));
+            }
+            var buildType = BuildType.builder()
+                    .id(buildTypeId)
+                    .name(buildTypeId)
+                    .project(Project.builder().id(templateId).build())
+                    .steps(Steps.builder().step(steps).build())
+                    .build();
+            var response = requesters.getRequest(Endpoint.BUILD_TYPES).create(buildType);
+            if (!isCreated(response, Endpoint.BUILD_TYPES, buildTypeId)) {
+                throw new IllegalStateException("Cannot create seed template build type " + buildTypeId
+                        + ": HTTP " + response.getStatusCode());
+            }
+            progress.markCreated(Endpoint.BUILD_TYPES, buildTypeId, null);
+        }
+        return templateId;
+    }
+
+    /**
+     * Creates a single project, as a copy of the template if there is one.
+     *
+     * @param id the ID of the project
+     * @param parentId the ID of the parent project, or null for a top-level project
+     * @param templateId the ID of the template project, or null
+     * @return true if the project exists after the call
+     */
+    private boolean createProject(String id, String parentId, String templateId) {
+        if (progress.isCreated(Endpoint.PROJECTS, id)) {
+            return true;
+        }
+        try {
+            var description = NewProjectDescription.builder().id(id).name(id);
+            if (parentId != null) {
+                description.parentProject(new Project(parentId, null, parentId));
+            }
+            if (templateId != null) {
+                description.sourceProject(new Project(templateId, null, templateId)).copyAllAssociatedSettings(true);
+            }
+            var response = requesters.getRequest(Endpoint.PROJECTS).create(description.build());
+            if (!isCreated(response, Endpoint.PROJECTS, id)) {
+                failures.add("PROJECTS " + id + ": HTTP " + response.getStatusCode() + " " + response.asString());
+                return false;
+            }
+            // В манифест попадают только проекты верхнего уровня, остальное удалится каскадно
+            progress.markCreated(Endpoint.PROJECTS, id, parentId == null ? id : null);
+            createdEntities.addAndGet(1 + (templateId != null ? topology.buildTypesPerProject() : 0));
+            return true;
+        } catch (RuntimeException e) {
+            failures.add("PROJECTS " + id + ": " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Creates a single user with a deterministic username.
+     *
+     * @param index the index of the user
+     */
+    private void createUser(int index) {
+        var username = progress.getRunId() + "_u" + index;
+        if (progress.isCreated(Endpoint.USERS, username)) {
+            return;
+        }
+        try {
+            var user = generate(User.class);
+            user.setUsername(username);
+            user.setRoles(null);
+            var request = requesters.getRequest(Endpoint.USERS);
+            var response = request.create(user);
+            String id;
+            if (response.getStatusCode() == HttpStatus.SC_OK) {
+                id = response.jsonPath().getString("id");
+            } else {
+                // Пользователь мог быть создан предыдущим запуском, который не успел записать прогресс
+                id = request.search("username:" + username).jsonPath().getString("user[0].id");
+                if (id == null) {
+                    failures.add("USERS " + username + ": HTTP " + response.getStatusCode() + " "
+                            + response.asString());
+                    return;
+                }
+            }
+            progress.markCreated(Endpoint.USERS, username, id);
+            createdEntities.incrementAndGet();
+        } catch (RuntimeException e) {
+            failures.add("USERS " + username + ": " + e);
+        }
+    }
+
+    /**
+     * Checks that the entity was created, or already existed after an interrupted run.
+     *
+     * @param response the create response
+     * @param endpoint the endpoint of the entity
+     * @param id the ID of the entity
+     * @return true if the entity exists
+     */
+    private boolean isCreated(Response response, Endpoint endpoint, String id) {
+        return response.getStatusCode() == HttpStatus.SC_OK
+                || requesters.getRequest(endpoint).read(id).getStatusCode() == HttpStatus.SC_OK;
+    }
+
+    /**
+     * Prints the number of created entities and the average throughput.
+     *
+     * @param startNanos the start time of the run
+     */
+    private void report(long startNanos) {
+        var elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+        var created = createdEntities.get();
+        var perSecond = created * TimeUnit.SECONDS.toMillis(1) / Math.max(elapsed.toMillis(), 1);
+        System.out.printf("[%s] created %d of %d entities, %d entities/sec, %d failures%n",
+                elapsed.withNanos(0), created, topology.entityCount(), perSecond, failures.size());
+    }
+
+    /**
+     * Deletes the entities listed in the teardown manifest and removes the progress of the run.
+     *
+     * @param directory the seed directory
+     * @param parallelism the maximum number of concurrent delete requests
+     * @param requesters the unchecked requesters of the super user
+     */
+    private static void teardown(Path directory, int parallelism, Requesters requesters) {
+        var manifest = SeedProgress.readManifest(directory);
+        var teardownFailures = new ConcurrentLinkedQueue<String>();
+        var executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            manifest.stream()
+                    .map(line -> CompletableFuture.runAsync(() -> {
+                        var entity = line.split(" ", 2);
+                        var statusCode = requesters.getRequest(Endpoint.valueOf(entity[0]))
+                                .delete(entity[1]).getStatusCode();
+                        if (statusCode >= HttpStatus.SC_MULTIPLE_CHOICES && statusCode != HttpStatus.SC_NOT_FOUND) {
+                            teardownFailures.add(line + ": HTTP " + statusCode);
+                        }
+                    }, executor))
+                    .toList()
+                    .forEach(CompletableFuture::join);
+        } finally {
+            executor.shutdown();
+        }
+        System.out.printf("Deleted %d seeded entities, %d failures%n",
+                manifest.size() - teardownFailures.size(), teardownFailures.size());
+        if (!teardownFailures.isEmpty()) {
+            teardownFailures.forEach(System.out::println);
+            throw new IllegalStateException("Seed teardown is incomplete, rerun it to retry");
+        }
+        SeedProgress.delete(directory);
+    }
+
+}
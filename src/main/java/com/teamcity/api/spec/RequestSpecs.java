@@ -27,7 +27,9 @@ import static com.github.viclovsky.swagger.coverage.SwaggerCoverageConstants.OUT
  *
  * <p>
  * All request specifications include common filters for logging, Allure reporting,
- * and Swagger coverage analysis to ensure comprehensive test reporting.
+ * and Swagger coverage analysis to ensure comprehensive test reporting. Every call
+ * builds a new specification, so no per-thread state is kept and the specifications
+ * can be used from any thread, including virtual ones.
  * </p>
  *
  * @author TeamCity Testing Framework
@@ -39,11 +41,6 @@ import static com.github.viclovsky.swagger.coverage.SwaggerCoverageConstants.OUT
  */
 public final class RequestSpecs {
 
-    /**
-     * ThreadLocal instance of RequestSpecs for thread safety.
-     */
-    private static final ThreadLocal<RequestSpecs> SPEC = ThreadLocal.withInitial(RequestSpecs::new);
-
     /**
      * Private constructor to prevent instantiation.
      */
@@ -101,6 +98,24 @@ public final class RequestSpecs {
                 .build();
     }
 
+    /**
+     * Creates a request specification for super user requests sent outside of any test.
+     * <p>
+     * Background pollers such as {@link com.teamcity.api.builds.BuildWatcher} serve many tests at
+     * once from their own thread. Their requests are not attached to the Allure report, logged or
+     * counted for swagger coverage, so this specification has no filters.
+     * </p>
+     *
+     * @return a RequestSpecification configured for super user-authenticated background requests
+     */
+    public static RequestSpecification superUserBackgroundSpec() {
+        return new RequestSpecBuilder()
+                .setBaseUri("http://:%s@%s".formatted(Config.getProperty("superUserToken"), Config.getProperty("host")))
+                .setContentType(ContentType.JSON)
+                .setAccept(ContentType.JSON)
+                .build();
+    }
+
     /**
      * Creates a request specification for mock server requests.
      * <p>
@@ -122,8 +137,8 @@ public final class RequestSpecs {
      * <p>
      * This private method creates a RequestSpecBuilder with all the common
      * filters and settings used across all request specifications. It includes
-     * filters for request/response logging, Allure reporting, and Swagger
-     * coverage analysis.
+     * filters for request/response logging, Allure reporting, Swagger
+     * coverage analysis and recording of the API resources used by tests.
      * </p>
      *
      * @return a configured RequestSpecBuilder
@@ -131,9 +146,10 @@ public final class RequestSpecs {
     private static RequestSpecBuilder reqBuilder() {
         return new RequestSpecBuilder()
                 // Фильтры для отображения реквестов и респонсов в Allure репорте и генерации Swagger Coverage репорта
+                // UsageRecordingFilter записывает ресурсы, которые трогает тест, для выбора тестов по изменениям
                 .addFilters(List.of(new RequestLoggingFilter(), new ResponseLoggingFilter(), new AllureRestAssured(),
                         new SwaggerCoverageRestAssured(new FileSystemOutputWriter(
-                                Paths.get("target/" + OUTPUT_DIRECTORY)))))
+                                Paths.get("target/" + OUTPUT_DIRECTORY))), new UsageRecordingFilter()))
                 .setContentType(ContentType.JSON)
                 .setAccept(ContentType.JSON);
     }
@@ -0,0 +1,28 @@
+package com.teamcity.api.spec;
+
+import com.teamcity.api.impact.UsageRecorder;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+/**
+ * REST Assured filter that records the API resource of every request for the change-impact index.
+ *
+ * @author TeamCity Testing Framework
+ * @version 1.0
+ * @since 1.0
+ * @see UsageRecorder
+ * @see RequestSpecs
+ */
+public final class UsageRecordingFilter implements Filter {
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec,
+                           FilterContext ctx) {
+        UsageRecorder.recordRequest(requestSpec.getMethod(), requestSpec.getUserDefinedPath());
+        return ctx.next(requestSpec, responseSpec);
+    }
+
+}
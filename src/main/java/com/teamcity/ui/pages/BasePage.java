@@ -1,6 +1,7 @@
 package com.teamcity.ui.pages;
 
 import com.codeborne.selenide.SelenideElement;
+import com.teamcity.api.impact.UsageRecorder;
 
 import java.time.Duration;
 
@@ -65,4 +66,11 @@ public abstract class BasePage {
     у элемента с классом saveButtonsBlock */
     protected final SelenideElement submitButton = $(".saveButtonsBlock > .submitButton");
 
+    /**
+     * Records the page object for the change-impact index of the current test.
+     */
+    protected BasePage() {
+        UsageRecorder.recordPage(getClass());
+    }
+
 }
@@ -1,19 +1,41 @@
 package com.teamcity;
 
+import com.teamcity.api.builds.BuildTimings;
 import com.teamcity.api.config.Config;
+import com.teamcity.api.context.InvocationContext;
+import com.teamcity.api.context.InvocationScoped;
+import com.teamcity.api.generators.BackgroundCleaner;
+import com.teamcity.api.generators.CleanupJournal;
+import com.teamcity.api.generators.DataSeed;
+import com.teamcity.api.generators.IsolationRoot;
+import com.teamcity.api.generators.OrphanSweeper;
+import com.teamcity.api.generators.ProjectTemplates;
 import com.teamcity.api.generators.TestDataStorage;
+import com.teamcity.api.impact.ImpactIndex;
+import com.teamcity.api.impact.UsageRecorder;
 import com.teamcity.api.models.TestData;
+import com.teamcity.api.models.comparison.ModelComparisonRules;
 import com.teamcity.api.requests.RequestersWithS;
 import com.teamcity.api.requests.Requesters;
 import com.teamcity.api.spec.RequestSpecs;
+import com.teamcity.common.AllureEnvironment;
+import com.teamcity.common.HealthGate;
 import com.teamcity.ui.BaseUiTest;
 import io.qameta.allure.Allure;
 import org.assertj.core.api.SoftAssertions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.IHookCallBack;
 import org.testng.IHookable;
+import org.testng.ITestContext;
 import org.testng.ITestResult;
 import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeSuite;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
 
 import static com.teamcity.api.generators.TestDataGenerator.generate;
 import static io.qameta.allure.util.ResultsUtils.TAG_LABEL_NAME;
@@ -21,20 +43,108 @@ import static io.qameta.allure.util.ResultsUtils.TAG_LABEL_NAME;
 
 public abstract class BaseTest implements IHookable {
 
+    private static final Logger logger = LoggerFactory.getLogger(BaseTest.class);
     protected final RequestersWithS superUserRequesterWithS = new RequestersWithS(RequestSpecs.superUserSpec());
     protected final Requesters superUserRequester = new Requesters(RequestSpecs.superUserSpec());
-    public ThreadLocal<TestData> testData = new ThreadLocal<>();
-    protected SoftAssertions softy;
+    // TestNG использует один экземпляр тестового класса для всех параллельных методов, поэтому состояние теста
+    // не хранится в обычных полях. Тестовые данные и софт ассерты привязаны к вызову теста, а не к потоку,
+    // поэтому доступны и из дочерних задач (InvocationContext.wrap) и не затираются соседними тестами
+    public final InvocationScoped<TestData> testData = new InvocationScoped<>();
+    protected final InvocationScoped<SoftAssertions> softy = new InvocationScoped<>();
+
+    @BeforeSuite(alwaysRun = true)
+    public void validateComparisonRules() {
+        // Правило сравнения с несуществующим полем должно уронить запуск сразу, а не посреди теста
+        ModelComparisonRules.validate();
+    }
+
+    @BeforeSuite(alwaysRun = true)
+    public void checkServerHealth(ITestContext context) {
+        // Полусозданный сервер или сервер без агентов должен остановить сьют до первого запроса к нему
+        HealthGate.check(context);
+    }
+
+    @BeforeSuite(alwaysRun = true, dependsOnMethods = "checkServerHealth")
+    public void deleteLeftoverEntities() {
+        // Удаляем сущности, оставшиеся после прерванных запусков (отмененная CI джоба, упавшая JVM)
+        var cleanupFailures = CleanupJournal.getJournal().replayInterrupted(superUserRequester);
+        if (!cleanupFailures.isEmpty()) {
+            logger.warn("Entities left by interrupted runs could not be deleted:\n{}", cleanupFailures.stream()
+                    .map(Object::toString)
+                    .collect(Collectors.joining("\n")));
+        }
+        // Затем ищем test_ сущности, которые не попали ни в один журнал (UI флоу, упавшие create запросы)
+        var sweepMode = Config.getProperty("orphanSweepMode");
+        if (!"off".equalsIgnoreCase(sweepMode)) {
+            var sweepReport = OrphanSweeper.sweep(superUserRequester, "dry-run".equalsIgnoreCase(sweepMode));
+            logger.info("{}", sweepReport);
+            Allure.addAttachment("Orphan sweep", sweepReport.toString());
+        }
+    }
 
     @BeforeMethod(alwaysRun = true)
-    public void generateBaseTestData() {
+    public void generateBaseTestData(ITestResult testResult) {
+        // TestNG передает в Before/After методы тот же ITestResult, что и в сам тест, используем его как ключ вызова
+        InvocationContext.begin(testResult);
+        // Сид данных зависит только от сида сьюта и идентичности теста, поэтому перезапуск с тем же dataSeed дает те же данные
+        DataSeed.begin(testResult.getTestClass().getRealClass().getName(), testResult.getMethod().getMethodName(),
+                testResult.getParameters());
         // Генерируем одну testData перед каждым тестом (так как она всегда нужна), без добавления ее в какое-то хранилище
         testData.set(generate());
     }
 
     @AfterMethod(alwaysRun = true)
-    public void deleteCreatedEntities() {
-        TestDataStorage.getStorage().deleteCreatedEntities(superUserRequester);
+    public void deleteCreatedEntities(ITestResult testResult) {
+        InvocationContext.begin(testResult);
+        try {
+            var cleanupFailures = TestDataStorage.getStorage().deleteCreatedEntities(superUserRequester);
+            // Не фейлим After метод (иначе скипнутся остальные тесты класса), а прикладываем неудаленные сущности к репорту
+            if (!cleanupFailures.isEmpty()) {
+                Allure.addAttachment("Cleanup failures", cleanupFailures.stream()
+                        .map(Object::toString)
+                        .collect(Collectors.joining("\n")));
+            }
+        } finally {
+            // After метод базового класса выполняется последним, после него данные вызова больше не нужны
+            InvocationContext.end(testResult);
+        }
+    }
+
+    @AfterSuite(alwaysRun = true)
+    public void drainBackgroundCleanup() {
+        // При cleanupMode=async тестовые данные удаляются в фоне, дожидаемся окончания очистки перед завершением сьюта
+        var cleanupFailures = BackgroundCleaner.drain(Duration.ofSeconds(
+                Config.getLong("cleanupDrainTimeoutSeconds")));
+        if (!cleanupFailures.isEmpty()) {
+            var report = cleanupFailures.stream()
+                    .map(Object::toString)
+                    .collect(Collectors.joining("\n"));
+            logger.warn("Background cleanup left {} entities:\n{}", cleanupFailures.size(), report);
+            Allure.addAttachment("Background cleanup failures", report);
+        }
+        // При isolationMode=thread корневые проекты потоков удаляются один раз в конце сьюта вместе со всем содержимым
+        var isolationFailures = IsolationRoot.deleteSuiteRoots(superUserRequester);
+        if (!isolationFailures.isEmpty()) {
+            Allure.addAttachment("Isolation root cleanup failures", isolationFailures.stream()
+                    .map(Object::toString)
+                    .collect(Collectors.joining("\n")));
+        }
+        // Шаблоны проектов живут весь сьют и удаляются после того, как удалены все их копии
+        var templateFailures = ProjectTemplates.deleteTemplates(superUserRequester);
+        if (!templateFailures.isEmpty()) {
+            Allure.addAttachment("Project template cleanup failures", templateFailures.stream()
+                    .map(Object::toString)
+                    .collect(Collectors.joining("\n")));
+        }
+        // Гистограммы ожидания в очереди и выполнения всех билдов сьюта: отделяют перегруженную очередь от медленных тестов
+        var buildTimingReport = BuildTimings.getTimings().getReport();
+        if (buildTimingReport != null) {
+            Allure.addAttachment("Build timings", buildTimingReport);
+            AllureEnvironment.write(BuildTimings.getTimings().getSummary());
+        }
+        // Журнал удаляется, только если все записанные в него сущности удалены
+        CleanupJournal.getJournal().close();
+        ImpactIndex.getIndex().save();
     }
 
     // Если делать assertAll в @AfterMethod, то ничего не будет работать: тест не будет ретраиться, а все последующие тесты в его классе скипнутся.
@@ -42,7 +152,12 @@ public abstract class BaseTest implements IHookable {
     // С помощью данного хука запускаем assertAll в конце каждого теста и фейлим сам тест.
     @Override
     public void run(IHookCallBack callBack, ITestResult testResult) {
-        softy = new SoftAssertions();
+        // Тест может выполняться не в том потоке, что Before метод (например, при timeOut), привязываем его заново
+        InvocationContext.begin(testResult);
+        softy.set(new SoftAssertions());
+        // Сиды не участвуют в historyId, но позволяют воспроизвести данные упавшего теста через -DdataSeed
+        Allure.parameter("dataSeed", DataSeed.getSuiteSeed(), true);
+        Allure.parameter("methodDataSeed", DataSeed.getInvocationSeed(), true);
         // Добавляем сьют и тэг для лучшей информативности и возможности фильтрации тестов в Allure репорте
         if (BaseUiTest.class.isAssignableFrom(testResult.getTestClass().getRealClass())) {
             var browser = Config.getProperty("browser");
@@ -50,7 +165,11 @@ public abstract class BaseTest implements IHookable {
             Allure.label(TAG_LABEL_NAME, browser);
         }
         callBack.runTestMethod(testResult);
-        softy.assertAll();
+        // Запоминаем ресурсы API и страницы, использованные тестом и его Before методами, для testSelection=impact.
+        // Упавший тест мог не дойти до части ресурсов, поэтому его использование только дополняет запись
+        ImpactIndex.getIndex().record(testResult.getMethod().getQualifiedName(), UsageRecorder.getUsage(),
+                testResult.getThrowable() == null);
+        softy.get().assertAll();
     }
 
 }
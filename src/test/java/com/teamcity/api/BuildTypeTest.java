@@ -1,6 +1,7 @@
 package com.teamcity.api;
 
 import com.teamcity.api.annotations.ManualTest;
+import com.teamcity.api.context.InvocationScoped;
 import com.teamcity.api.enums.UserRole;
 import com.teamcity.api.generators.RandomData;
 import com.teamcity.api.models.BuildType;
@@ -24,8 +25,8 @@ import static io.qameta.allure.Allure.step;
 public class BuildTypeTest extends BaseApiTest {
 
     private static final int BUILD_TYPE_ID_CHARACTERS_LIMIT = 225;
-    private final ThreadLocal<RequesterWithS<BuildType>> checkedBuildTypeRequest = new ThreadLocal<>();
-    private final ThreadLocal<Requester> uncheckedBuildTypeRequest = new ThreadLocal<>();
+    private final InvocationScoped<RequesterWithS<BuildType>> checkedBuildTypeRequest = new InvocationScoped<>();
+    private final InvocationScoped<Requester> uncheckedBuildTypeRequest = new InvocationScoped<>();
 
     @BeforeMethod(alwaysRun = true)
     public void getRequests() {
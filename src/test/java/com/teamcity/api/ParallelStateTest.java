@@ -0,0 +1,116 @@
+package com.teamcity.api;
+
+import com.teamcity.api.config.Config;
+import com.teamcity.api.context.InvocationContext;
+import com.teamcity.api.context.InvocationScoped;
+import com.teamcity.api.generators.TestDataStorage;
+import com.teamcity.api.requests.withoutS.Requester;
+import com.teamcity.api.spec.RequestSpecs;
+import io.qameta.allure.Feature;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.teamcity.api.enums.Endpoint.USERS;
+
+@Feature("Parallel execution")
+public class ParallelStateTest extends BaseApiTest {
+
+    private static final int THREAD_COUNT = 32;
+    private static final int INVOCATION_COUNT = THREAD_COUNT * 4;
+    private static final long BARRIER_TIMEOUT_SECONDS = 10;
+    // Вызовы проходят через барьер группами, поэтому гарантированно выполняются параллельно. Размер группы - реальный
+    // параллелизм: с -Pvirtual-threads одновременно выполняется не больше virtualThreadConcurrency вызовов
+    private CyclicBarrier barrier;
+    private final Set<Object> seenState = Collections.synchronizedSet(
+            Collections.newSetFromMap(new IdentityHashMap<>()));
+    // Сгенерированные id сущностей, которые создаются на сервере: у разных вызовов они не должны совпадать
+    private final Set<String> seenIds = ConcurrentHashMap.newKeySet();
+    private final InvocationScoped<Requester> userRequest = new InvocationScoped<>();
+    // Сколько вызовов выполняется сейчас и максимум за прогон: без него тест прошел бы и при полностью
+    // последовательном выполнении, так как таймаут барьера не валит вызов
+    private final AtomicInteger activeInvocations = new AtomicInteger();
+    private final AtomicInteger peakInvocations = new AtomicInteger();
+
+    @BeforeMethod(alwaysRun = true)
+    public void getRequests() {
+        userRequest.set(new Requester(RequestSpecs.authSpec(testData.get().getUser()), USERS));
+    }
+
+    @Test(description = "Per-test state should not leak between concurrently running tests", groups = {"Regression"},
+            invocationCount = INVOCATION_COUNT, threadPoolSize = THREAD_COUNT)
+    public void perTestStateIsIsolatedTest() throws Exception {
+        peakInvocations.accumulateAndGet(activeInvocations.incrementAndGet(), Math::max);
+        try {
+            checkIsolation();
+        } finally {
+            activeInvocations.decrementAndGet();
+        }
+    }
+
+    @Test(description = "Invocations of the isolation test should run concurrently", groups = {"Regression"},
+            dependsOnMethods = "perTestStateIsIsolatedTest")
+    public void invocationsRunConcurrentlyTest() {
+        softy.get().assertThat(peakInvocations.get()).as("peak concurrent invocations")
+                .isGreaterThanOrEqualTo(getBarrier().getParties());
+    }
+
+    private void checkIsolation() throws Exception {
+        var ownTestData = testData.get();
+        var ownSoftAssertions = softy.get();
+        var ownRequest = userRequest.get();
+        var ownStorage = TestDataStorage.getStorage();
+
+        // Пока все потоки ждут на барьере, соседние вызовы уже прошли свои Before методы и записали свое состояние
+        awaitConcurrentInvocations();
+        var childTestData = ForkJoinPool.commonPool().submit(InvocationContext.wrap(() -> testData.get())).get();
+        awaitConcurrentInvocations();
+
+        softy.get().assertThat(softy.get()).as("softAssertions").isSameAs(ownSoftAssertions);
+        softy.get().assertThat(testData.get()).as("testData").isSameAs(ownTestData);
+        softy.get().assertThat(childTestData).as("testDataInChildTask").isSameAs(ownTestData);
+        softy.get().assertThat(userRequest.get()).as("userRequest").isSameAs(ownRequest);
+        softy.get().assertThat(TestDataStorage.getStorage()).as("testDataStorage").isSameAs(ownStorage);
+        // Ни один объект состояния не должен достаться двум вызовам
+        for (var state : new Object[]{ownTestData, ownSoftAssertions, ownRequest, ownStorage}) {
+            softy.get().assertThat(seenState.add(state)).as("unique " + state.getClass().getSimpleName()).isTrue();
+        }
+        // Одинаковые данные у параллельных вызовов (или у ретрая) дали бы 400 на дубликат id при создании
+        for (var id : new String[]{"project " + ownTestData.getNewProjectDescription().getId(),
+                "buildType " + ownTestData.getBuildType().getId(), "user " + ownTestData.getUser().getUsername()}) {
+            softy.get().assertThat(seenIds.add(id)).as("unique " + id).isTrue();
+        }
+    }
+
+    private void awaitConcurrentInvocations() throws InterruptedException {
+        try {
+            getBarrier().await(BARRIER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException | BrokenBarrierException e) {
+            // Последним вызовам может не хватить соседей до полной группы: не ждем их вечно и не валим вызов.
+            // Что вызовы действительно выполнялись параллельно, проверяет invocationsRunConcurrentlyTest
+            getBarrier().reset();
+        }
+    }
+
+    private synchronized CyclicBarrier getBarrier() {
+        if (barrier == null) {
+            var concurrency = Config.getProperty("virtualThreadConcurrency");
+            var parties = Thread.currentThread().isVirtual() && concurrency != null && !concurrency.isBlank()
+                    ? Math.min(THREAD_COUNT, Integer.parseInt(concurrency.trim()))
+                    : THREAD_COUNT;
+            barrier = new CyclicBarrier(parties);
+        }
+        return barrier;
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.teamcity.api;
 
+import com.teamcity.api.context.InvocationScoped;
+import com.teamcity.api.enums.UserRole;
 import com.teamcity.api.generators.RandomData;
 import com.teamcity.api.models.Project;
 import com.teamcity.api.models.Role;
@@ -25,14 +27,12 @@ import static com.teamcity.api.enums.UserRole.PROJECT_VIEWER;
 import static com.teamcity.api.enums.UserRole.PROJECT_DEVELOPER;
 import static com.teamcity.api.enums.UserRole.AGENT_MANAGER;
 
-import com.teamcity.api.enums.UserRole;
-
 @Feature("Project")
 public class ProjectTest extends BaseApiTest {
 
     private static final int PROJECT_ID_CHARACTERS_LIMIT = 225;
-    private final ThreadLocal<RequesterWithS<Project>> projectRequestWithS = new ThreadLocal<>();
-    private final ThreadLocal<Requester> projectRequest = new ThreadLocal<>();
+    private final InvocationScoped<RequesterWithS<Project>> projectRequestWithS = new InvocationScoped<>();
+    private final InvocationScoped<Requester> projectRequest = new InvocationScoped<>();
 
     @BeforeMethod(alwaysRun = true)
     public void getRequests() {
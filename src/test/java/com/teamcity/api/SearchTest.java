@@ -1,14 +1,17 @@
 package com.teamcity.api;
 
+import com.teamcity.api.generators.IsolationRoot;
 import com.teamcity.api.models.BuildType;
 import com.teamcity.api.models.Project;
 import com.teamcity.api.models.User;
 import com.teamcity.api.models.comparison.ModelAssertions;
 import com.teamcity.api.requests.withS.RequesterWithS;
 import io.qameta.allure.Feature;
+import io.restassured.response.Response;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static io.qameta.allure.Allure.step;
 
@@ -41,48 +44,43 @@ public class SearchTest extends BaseApiTest {
         });
 
         var searchResults = step("Search for all created entities", () -> {
-            var projects = checkedProjectRequest.search();
-            var users = checkedUserRequest.search();
-            var buildTypes = checkedBuildTypeRequest.search();
+            // Проекты и билд конфигурации ищем только внутри корневого проекта изоляции (без изоляции - по всему серверу)
+            // Ответы не десериализуются в модели: при сравнении из тела потоково читаются только id и поля из правил
+            var projects = checkedProjectRequest.searchResponse(IsolationRoot.getAffectedProjectLocator());
+            var users = checkedUserRequest.searchResponse();
+            var buildTypes = checkedBuildTypeRequest.searchResponse(IsolationRoot.getAffectedProjectLocator());
             return new SearchResults(projects, users, buildTypes);
         });
 
-        step("Verify all created projects are found in search results", () -> {
-            for (var createdProject : createdProjects) {
-                var foundProject = searchResults.projects().stream()
-                        .filter(p -> p.getId().equals(createdProject.getId()))
-                        .findFirst()
-                        .orElse(null);
-                ModelAssertions.assertThatModels(createdProject, foundProject).match();
-            }
-        });
+        // Сравниваем по id через хэш-индекс результатов поиска, все расхождения попадают в один отчет
+        step("Verify all created projects are found in search results", () ->
+                ModelAssertions.assertThatCollections(createdProjects, searchResults.projects()).keyedBy("id").match());
 
-        step("Verify all created users are found in search results", () -> {
-            for (var createdUser : createdUsers) {
-                var foundUser = searchResults.users().stream()
-                        .filter(u -> u.getId().equals(createdUser.getId()))
-                        .findFirst()
-                        .orElse(null);
-                ModelAssertions.assertThatModels(createdUser, foundUser).match();
-            }
-        });
+        step("Verify all created users are found in search results", () ->
+                ModelAssertions.assertThatCollections(createdUsers, searchResults.users()).keyedBy("id").match());
 
-        step("Verify all created build types are found in search results", () -> {
-            for (var createdBuildType : createdBuildTypes) {
-                var foundBuildType = searchResults.buildTypes().stream()
-                        .filter(bt -> bt.getId().equals(createdBuildType.getId()))
-                        .findFirst()
-                        .orElse(null);
-                ModelAssertions.assertThatModels(createdBuildType, foundBuildType).match();
-            }
-        });
+        step("Verify all created build types are found in search results", () ->
+                ModelAssertions.assertThatCollections(createdBuildTypes, searchResults.buildTypes()).keyedBy("id")
+                        .match());
+    }
+
+    @Test(description = "User should be found in raw search response by id", groups = {"Regression"})
+    public void searchUserByIdTest() {
+        var createdUser = checkedUserRequest.create(testData.get().getUser());
+
+        // TeamCity отдает id пользователя числом, а в модели он строка: ключи обеих сторон должны совпасть
+        var users = step("Search for the created user",
+                () -> checkedUserRequest.searchResponse("username:" + createdUser.getUsername()));
+
+        step("Verify the created user is the only search result", () ->
+                ModelAssertions.assertThatCollections(List.of(createdUser), users).keyedBy("id").exactly().match());
     }
 
     // Helper record to hold search results
     private record SearchResults(
-            java.util.List<Project> projects,
-            java.util.List<User> users,
-            java.util.List<BuildType> buildTypes
+            Response projects,
+            Response users,
+            Response buildTypes
     ) {}
 
 }
@@ -1,23 +1,26 @@
 package com.teamcity.api;
 
+import com.teamcity.api.annotations.RequiresAgent;
+import com.teamcity.api.builds.BuildTimings;
+import com.teamcity.api.builds.BuildWatcher;
+import com.teamcity.api.generators.ProjectTemplates;
 import com.teamcity.api.models.Build;
+import com.teamcity.api.models.BuildType;
 import com.teamcity.api.models.Property;
 import com.teamcity.api.models.Steps;
+import com.teamcity.api.models.comparison.ModelAssertions;
 import com.teamcity.api.requests.withS.RequesterWithS;
 import com.teamcity.api.spec.RequestSpecs;
 import com.teamcity.common.WireMock;
 import io.qameta.allure.Feature;
 import io.qameta.allure.Step;
 import org.apache.http.HttpStatus;
-import org.awaitility.Awaitility;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
-import static com.teamcity.api.enums.Endpoint.BUILDS;
 import static com.teamcity.api.enums.Endpoint.BUILD_QUEUE;
 import static com.teamcity.api.enums.Endpoint.BUILD_TYPES;
 import static com.teamcity.api.enums.Endpoint.PROJECTS;
@@ -27,11 +30,15 @@ import static com.teamcity.api.generators.TestDataGenerator.generate;
 @Feature("Start build")
 public class StartBuildTest extends BaseApiTest {
 
+    private static final String SCRIPT_BUILD_TEMPLATE = "scriptBuild";
+    private static final String SCRIPT_BUILD_TYPE_NAME = "Script build";
+
     @AfterMethod(alwaysRun = true)
     public void stopWireMockServer() {
         WireMock.stopServer();
     }
 
+    @RequiresAgent
     @Test(description = "User should be able to start build", groups = {"Regression"})
     public void userStartsBuildTest() {
         superUserRequesterWithS.getRequest(USERS).create(testData.get().getUser());
@@ -41,7 +48,9 @@ public class StartBuildTest extends BaseApiTest {
                 generate(Property.class, "script.content", "echo 'Hello World!'"),
                 generate(Property.class, "use.custom.script", "true"))));
 
-        superUserRequesterWithS.getRequest(BUILD_TYPES).create(testData.get().getBuildType());
+        var buildType = superUserRequesterWithS.getRequest(BUILD_TYPES).create(testData.get().getBuildType());
+        // Шаги сравниваются поэлементно: имя и тип каждого шага должны совпасть с отправленными
+        ModelAssertions.assertThatModels(testData.get().getBuildType(), buildType).match();
 
         var checkedBuildQueueRequest = new RequesterWithS<Build>(RequestSpecs
                 .authSpec(testData.get().getUser()), BUILD_QUEUE);
@@ -49,10 +58,10 @@ public class StartBuildTest extends BaseApiTest {
                 .buildType(testData.get().getBuildType())
                 .build());
 
-        softy.assertThat(build.getState()).as("buildState").isEqualTo("queued");
+        softy.get().assertThat(build.getState()).as("buildState").isEqualTo("queued");
 
         build = waitUntilBuildIsFinished(build);
-        softy.assertThat(build.getStatus()).as("buildStatus").isEqualTo("SUCCESS");
+        softy.get().assertThat(build.getStatus()).as("buildStatus").isEqualTo("SUCCESS");
     }
 
     @Test(description = "User should be able to start build (with WireMock)", groups = {"Regression"})
@@ -70,22 +79,43 @@ public class StartBuildTest extends BaseApiTest {
                 .buildType(testData.get().getBuildType())
                 .build());
 
-        softy.assertThat(build.getState()).as("buildState").isEqualTo("finished");
-        softy.assertThat(build.getStatus()).as("buildStatus").isEqualTo("SUCCESS");
+        softy.get().assertThat(build.getState()).as("buildState").isEqualTo("finished");
+        softy.get().assertThat(build.getStatus()).as("buildStatus").isEqualTo("SUCCESS");
+    }
+
+    @RequiresAgent
+    @Test(description = "User should be able to start build in a project created from a template", groups = {"Regression"})
+    public void userStartsBuildInProjectFromTemplateTest() {
+        superUserRequesterWithS.getRequest(USERS).create(testData.get().getUser());
+
+        // Шаблон создается один раз на сьют, каждый тест получает свою копию проекта одним запросом
+        ProjectTemplates.register(SCRIPT_BUILD_TEMPLATE, () -> List.of(BuildType.builder()
+                .name(SCRIPT_BUILD_TYPE_NAME)
+                .steps(generate(Steps.class, List.of(
+                        generate(Property.class, "script.content", "echo 'Hello World!'"),
+                        generate(Property.class, "use.custom.script", "true"))))
+                .build()));
+        var buildType = ProjectTemplates.materialize(SCRIPT_BUILD_TEMPLATE).getBuildType(SCRIPT_BUILD_TYPE_NAME);
+
+        var checkedBuildQueueRequest = new RequesterWithS<Build>(RequestSpecs
+                .authSpec(testData.get().getUser()), BUILD_QUEUE);
+        var build = checkedBuildQueueRequest.create(Build.builder()
+                .buildType(buildType)
+                .build());
+
+        softy.get().assertThat(build.getState()).as("buildState").isEqualTo("queued");
+
+        build = waitUntilBuildIsFinished(build);
+        softy.get().assertThat(build.getStatus()).as("buildStatus").isEqualTo("SUCCESS");
     }
 
     @Step("Wait until build is finished")
     private Build waitUntilBuildIsFinished(Build build) {
-        // Необходимо использовать AtomicReference, так как переменная в лямбда выражении должна быть final или effectively final
-        var atomicBuild = new AtomicReference<>(build);
-        var checkedBuildRequest = new RequesterWithS<Build>(RequestSpecs
-                .authSpec(testData.get().getUser()), BUILDS);
-        Awaitility.await()
-                .until(() -> {
-                    atomicBuild.set(checkedBuildRequest.read(atomicBuild.get().getId()));
-                    return "finished".equals(atomicBuild.get().getState());
-                });
-        return atomicBuild.get();
+        // Билды всех параллельных тестов опрашиваются одним запросом, тест просыпается сразу после окончания билда
+        var finishedBuild = BuildWatcher.getWatcher().watch(build.getId()).join();
+        // Разбивка на ожидание в очереди и выполнение показывает, тормозит ли сам билд или очередь TeamCity
+        BuildTimings.getTimings().attach(finishedBuild);
+        return finishedBuild;
     }
 
 }
@@ -0,0 +1,43 @@
+package com.teamcity.common;
+
+import io.qameta.allure.util.PropertiesUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+
+// Записи блока Environment Allure репорта (environment.properties в директории результатов). Файл дополняется,
+// а не перезаписывается, так как в него пишут несколько листенеров и сьютов
+public final class AllureEnvironment {
+
+    private static final Logger logger = LoggerFactory.getLogger(AllureEnvironment.class);
+    private static final String ENVIRONMENT_FILE = "environment.properties";
+
+    private AllureEnvironment() {
+    }
+
+    public static synchronized void write(Map<String, String> entries) {
+        var environmentFile = Path.of(PropertiesUtils.loadAllureProperties()
+                .getProperty("allure.results.directory", "allure-results")).resolve(ENVIRONMENT_FILE);
+        var environment = new Properties();
+        try {
+            if (Files.exists(environmentFile)) {
+                try (var reader = Files.newBufferedReader(environmentFile)) {
+                    environment.load(reader);
+                }
+            }
+            environment.putAll(entries);
+            Files.createDirectories(environmentFile.getParent());
+            try (var writer = Files.newBufferedWriter(environmentFile)) {
+                environment.store(writer, null);
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot write {} to {}", entries.keySet(), environmentFile, e);
+        }
+    }
+
+}
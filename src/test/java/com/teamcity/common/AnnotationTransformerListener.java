@@ -6,6 +6,8 @@ import org.testng.annotations.ITestAnnotation;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.stream.Stream;
 
 // Листенер добавлен в pom.xml, чтобы работал механизм ретрая упавших тестов и использования дата провайдера в UI тестах
 public final class AnnotationTransformerListener implements IAnnotationTransformer {
@@ -13,6 +15,12 @@ public final class AnnotationTransformerListener implements IAnnotationTransform
     @Override
     public void transform(ITestAnnotation annotation, Class testClass, Constructor testConstructor, Method testMethod) {
         annotation.setRetryAnalyzer(RetryAnalyzer.class);
+        // Хронически флаки тесты по статистике прошлых прогонов попадают в группу Quarantine и запускаются последними
+        if (FlakinessStats.getStats().isQuarantined(
+                testMethod.getDeclaringClass().getName() + "." + testMethod.getName())) {
+            annotation.setGroups(Stream.concat(Arrays.stream(annotation.getGroups()),
+                    Stream.of(FlakinessStats.QUARANTINE_GROUP)).toArray(String[]::new));
+        }
         if (BaseUiTest.class.isAssignableFrom(testMethod.getDeclaringClass())) {
             annotation.setDataProvider("browserProvider");
         }
@@ -0,0 +1,125 @@
+package com.teamcity.common;
+
+import com.teamcity.api.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ISuiteResult;
+import org.testng.ITestContext;
+import org.testng.ITestResult;
+import org.testng.xml.XmlSuite;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// LPT (longest processing time first) планирование: самые долгие по прошлым прогонам тесты запускаются первыми,
+// чтобы медленный тест не стартовал последним и не растягивал хвост прогона. Предсказанный и фактический makespan
+// (время от старта первого теста до окончания последнего) попадают в Environment Allure репорта
+public final class DurationAwareScheduler implements IMethodInterceptor, ISuiteListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(DurationAwareScheduler.class);
+    private final Map<String, Long> predictedMakespans = new ConcurrentHashMap<>();
+    private volatile TestDurationHistory history;
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (!"duration".equalsIgnoreCase(Config.getProperty("testScheduling"))) {
+            return methods;
+        }
+        var defaultDuration = Config.getLong("testDefaultDurationMillis");
+        var durations = getHistory();
+        // Сортировка стабильная: тесты с одинаковой оценкой сохраняют порядок объявления
+        var scheduled = methods.stream()
+                .map(method -> estimate(method, durations, defaultDuration))
+                .sorted(Comparator.comparingLong(EstimatedMethod::duration).reversed())
+                .toList();
+
+        var workers = getWorkerCount(context.getSuite().getXmlSuite());
+        var predictedMakespan = predictMakespan(scheduled.stream().mapToLong(EstimatedMethod::duration).toArray(),
+                workers);
+        // Тэги <test> сьюта выполняются последовательно, поэтому их makespan суммируется
+        predictedMakespans.merge(context.getSuite().getName(), predictedMakespan, Long::sum);
+        logger.info("Scheduled {} methods of '{}' longest-first on {} workers, known durations: {}, "
+                        + "predicted makespan: {}", scheduled.size(), context.getName(), workers,
+                scheduled.stream().filter(EstimatedMethod::known).count(), Duration.ofMillis(predictedMakespan));
+        return scheduled.stream().map(EstimatedMethod::method).toList();
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        var predictedMakespan = predictedMakespans.remove(suite.getName());
+        if (predictedMakespan == null) {
+            return;
+        }
+        var results = suite.getResults().values().stream()
+                .map(ISuiteResult::getTestContext)
+                .flatMap(context -> Stream.of(context.getPassedTests(), context.getFailedTests(),
+                        context.getSkippedTests()))
+                .flatMap(resultMap -> resultMap.getAllResults().stream())
+                .toList();
+        if (results.isEmpty()) {
+            return;
+        }
+        var actualMakespan = results.stream().mapToLong(ITestResult::getEndMillis).max().orElse(0)
+                - results.stream().mapToLong(ITestResult::getStartMillis).min().orElse(0);
+        logger.info("Suite '{}' makespan: predicted {}, actual {}", suite.getName(),
+                Duration.ofMillis(predictedMakespan), Duration.ofMillis(actualMakespan));
+        AllureEnvironment.write(Map.of(
+                suite.getName() + " predicted makespan", Duration.ofMillis(predictedMakespan).toString(),
+                suite.getName() + " actual makespan", Duration.ofMillis(actualMakespan).toString()));
+    }
+
+    private static EstimatedMethod estimate(IMethodInstance method, TestDurationHistory durations,
+                                            long defaultDuration) {
+        var testMethod = method.getMethod();
+        return new EstimatedMethod(method, durations.estimate(testMethod.getQualifiedName(),
+                testMethod.getInvocationCount(), defaultDuration),
+                durations.getDuration(testMethod.getQualifiedName()) != null);
+    }
+
+    // Жадное LPT распределение: каждый следующий (более короткий) тест достается наименее загруженному воркеру
+    static long predictMakespan(long[] durationsLongestFirst, int workers) {
+        var loads = new PriorityQueue<Long>();
+        for (var i = 0; i < workers; i++) {
+            loads.add(0L);
+        }
+        var makespan = 0L;
+        for (var duration : durationsLongestFirst) {
+            var load = loads.poll() + duration;
+            makespan = Math.max(makespan, load);
+            loads.add(load);
+        }
+        return makespan;
+    }
+
+    private static int getWorkerCount(XmlSuite xmlSuite) {
+        return xmlSuite.getParallel() == null || !xmlSuite.getParallel().isParallel()
+                ? 1
+                : Math.max(1, xmlSuite.getThreadCount());
+    }
+
+    private TestDurationHistory getHistory() {
+        // История читается один раз на JVM: до этого момента текущий прогон еще не записал свои результаты
+        if (history == null) {
+            synchronized (this) {
+                if (history == null) {
+                    history = TestDurationHistory.load();
+                    logger.info("Loaded durations of {} test methods from previous Allure results", history.size());
+                }
+            }
+        }
+        return history;
+    }
+
+    private record EstimatedMethod(IMethodInstance method, long duration, boolean known) {
+    }
+
+}
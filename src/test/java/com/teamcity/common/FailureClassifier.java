@@ -0,0 +1,64 @@
+package com.teamcity.common;
+
+import org.awaitility.core.ConditionTimeoutException;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+// Классификация падений: транзиентные (сеть, 5xx, таймаут ожидания состояния на сервере, потерянная сессия браузера)
+// имеет смысл ретраить, детерминированные (несовпадение моделей, 4xx вместо ожидаемого статуса, UI ассерты) - нет,
+// повтор только удвоит время падения
+public final class FailureClassifier {
+
+    // Сообщение ResponseSpecification RestAssured: "Expected status code <200> but was <503>."
+    private static final Pattern SERVER_ERROR_STATUS = Pattern.compile("Expected status code <\\d+> but was <5\\d\\d>");
+
+    private FailureClassifier() {
+    }
+
+    public static boolean isTransient(Throwable throwable) {
+        // Проходим всю цепочку причин и suppressed исключений (SoftAssertions складывает ошибки туда)
+        var visited = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+        return isTransient(throwable, visited);
+    }
+
+    private static boolean isTransient(Throwable throwable, Set<Throwable> visited) {
+        if (throwable == null || !visited.add(throwable)) {
+            return false;
+        }
+        if (throwable instanceof IOException || throwable instanceof ConditionTimeoutException) {
+            return true;
+        }
+        // Таймаут ожидания билда в BuildWatcher приходит из join() как CompletionException(TimeoutException)
+        if (throwable instanceof TimeoutException) {
+            return true;
+        }
+        // Транзиентны только потеря сессии и недоступный браузер: NoSuchElementException или таймаут ожидания
+        // элемента - тоже WebDriverException, но это обычное падение UI ассерта
+        if (throwable instanceof NoSuchSessionException || throwable instanceof SessionNotCreatedException
+                || throwable instanceof UnreachableBrowserException) {
+            return true;
+        }
+        if (throwable.getMessage() != null && SERVER_ERROR_STATUS.matcher(throwable.getMessage()).find()) {
+            return true;
+        }
+        for (var suppressed : throwable.getSuppressed()) {
+            if (isTransient(suppressed, visited)) {
+                return true;
+            }
+        }
+        // Причина ассерта (например, ElementNotFound Selenide с NoSuchElementException внутри) не делает его транзиентным
+        if (throwable instanceof AssertionError) {
+            return false;
+        }
+        return isTransient(throwable.getCause(), visited);
+    }
+
+}
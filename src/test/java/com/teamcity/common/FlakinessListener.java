@@ -0,0 +1,87 @@
+package com.teamcity.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Записывает итог каждого теста за прогон в FlakinessStats и переносит тесты группы Quarantine в конец прогона,
+// чтобы хронически флаки тесты не занимали воркеры в начале и не мешали получить результат остальных тестов.
+// Окно статистики считает прогоны, а не вызовы: UI тест вызывается по разу на браузер, ParallelStateTest - 128 раз,
+// поэтому за прогон записывается один исход метода - худший из исходов его вызовов
+public final class FlakinessListener implements ITestListener, ISuiteListener, IMethodInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlakinessListener.class);
+    // Вызовы, у которых уже была неудачная попытка, отправленная на ретрай
+    private final Set<String> retriedInvocations = ConcurrentHashMap.newKeySet();
+    // Худший исход каждого метода в текущем сьюте
+    private final Map<String, FlakinessStats.Outcome> suiteOutcomes = new ConcurrentHashMap<>();
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        var quarantined = methods.stream().filter(FlakinessListener::isQuarantined).toList();
+        if (quarantined.isEmpty()) {
+            return methods;
+        }
+        logger.info("{} quarantined methods of '{}' run last", quarantined.size(), context.getName());
+        return Stream.concat(methods.stream().filter(method -> !isQuarantined(method)), quarantined.stream())
+                .toList();
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        // Попытка, после которой TestNG запускает ретрай, отмечается как skipped с wasRetried
+        if (result.wasRetried()) {
+            retriedInvocations.add(getInvocationKey(result));
+        }
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        var outcome = retriedInvocations.remove(getInvocationKey(result))
+                ? FlakinessStats.Outcome.RETRIED
+                : FlakinessStats.Outcome.PASSED;
+        recordInvocation(result, outcome);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        retriedInvocations.remove(getInvocationKey(result));
+        var outcome = FailureClassifier.isTransient(result.getThrowable())
+                ? FlakinessStats.Outcome.TRANSIENT
+                : FlakinessStats.Outcome.FAILED;
+        recordInvocation(result, outcome);
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        suiteOutcomes.forEach(FlakinessStats.getStats()::record);
+        suiteOutcomes.clear();
+        FlakinessStats.getStats().save();
+    }
+
+    private void recordInvocation(ITestResult result, FlakinessStats.Outcome outcome) {
+        suiteOutcomes.merge(result.getMethod().getQualifiedName(), outcome, FlakinessStats.Outcome::worst);
+    }
+
+    private static boolean isQuarantined(IMethodInstance method) {
+        return Arrays.asList(method.getMethod().getGroups()).contains(FlakinessStats.QUARANTINE_GROUP);
+    }
+
+    private static String getInvocationKey(ITestResult result) {
+        return result.getMethod().getQualifiedName() + Arrays.deepToString(result.getParameters());
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.teamcity.common;
+
+import com.teamcity.api.config.Config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+// Исходы тестов за последние flakyStatsWindow прогонов, по одному символу на прогон (последний справа):
+// P - прошел с первой попытки, R - прошел после ретрая, T - упал с транзиентной ошибкой, F - упал детерминированно.
+// Тест с quarantineFlakyRuns и более исходами R/T в окне считается хронически флаки и уходит в группу Quarantine
+public final class FlakinessStats {
+
+    public static final String QUARANTINE_GROUP = "Quarantine";
+    private final Path file;
+    private final int window;
+    private final int quarantineFlakyRuns;
+    private final Map<String, String> outcomesByTest;
+
+    private FlakinessStats(Path file, int window, int quarantineFlakyRuns, Map<String, String> outcomesByTest) {
+        this.file = file;
+        this.window = window;
+        this.quarantineFlakyRuns = quarantineFlakyRuns;
+        this.outcomesByTest = outcomesByTest;
+    }
+
+    public static FlakinessStats getStats() {
+        return Holder.STATS;
+    }
+
+    public static FlakinessStats load(Path file, int window, int quarantineFlakyRuns) {
+        var outcomesByTest = new TreeMap<String, String>();
+        if (Files.exists(file)) {
+            var properties = new Properties();
+            try (var reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read flakiness stats " + file, e);
+            }
+            properties.stringPropertyNames().forEach(test -> outcomesByTest.put(test, properties.getProperty(test)));
+        }
+        return new FlakinessStats(file, window, quarantineFlakyRuns, outcomesByTest);
+    }
+
+    public synchronized void record(String test, Outcome outcome) {
+        var outcomes = outcomesByTest.getOrDefault(test, "") + outcome.getCode();
+        outcomesByTest.put(test, outcomes.substring(Math.max(0, outcomes.length() - window)));
+    }
+
+    public synchronized boolean isQuarantined(String test) {
+        var outcomes = outcomesByTest.getOrDefault(test, "");
+        return outcomes.chars().filter(code -> code == Outcome.RETRIED.getCode() || code == Outcome.TRANSIENT.getCode())
+                .count() >= quarantineFlakyRuns;
+    }
+
+    public synchronized void save() {
+        var properties = new Properties();
+        properties.putAll(outcomesByTest);
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (var writer = Files.newBufferedWriter(file)) {
+                properties.store(writer, "Test outcomes, oldest first: P passed, R passed on retry, "
+                        + "T transient failure, F deterministic failure");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write flakiness stats " + file, e);
+        }
+    }
+
+    // Порядок констант - от лучшего исхода к худшему
+    public enum Outcome {
+        PASSED('P'),
+        RETRIED('R'),
+        TRANSIENT('T'),
+        FAILED('F');
+
+        private final char code;
+
+        Outcome(char code) {
+            this.code = code;
+        }
+
+        public char getCode() {
+            return code;
+        }
+
+        public static Outcome worst(Outcome first, Outcome second) {
+            return first.compareTo(second) >= 0 ? first : second;
+        }
+    }
+
+    private static final class Holder {
+
+        // Статистика читается до начала прогона (AnnotationTransformer), поэтому учитывает только прошлые прогоны
+        private static final FlakinessStats STATS = load(Path.of(Config.getProperty("flakyStatsFile")),
+                Config.getInt("flakyStatsWindow"), Config.getInt("quarantineFlakyRuns"));
+
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.teamcity.common;
+
+import com.teamcity.api.annotations.RequiresAgent;
+import com.teamcity.api.config.Config;
+import com.teamcity.api.health.ServerHealth;
+import com.teamcity.api.health.ServerHealthProbe;
+import com.teamcity.api.spec.RequestSpecs;
+import io.qameta.allure.Allure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestContext;
+import org.testng.ITestResult;
+import org.testng.SkipException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Проверка сервера перед сьютом: недоступный или не до конца запущенный сервер роняет сьют сразу (все тесты
+// скипаются из-за упавшего @BeforeSuite), а при нехватке агентов тесты с @RequiresAgent скипаются без ожидания
+// билда, который никогда не стартует. При healthGateMode=abort любая проблема, включая задержку REST, роняет сьют
+public final class HealthGate implements IInvokedMethodListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealthGate.class);
+    private static final String SETUP_GROUP = "Setup";
+    // Причина скипа тестов, которым нужен агент, или null, если агентов достаточно
+    private static volatile String agentSkipReason;
+
+    public static void check(ITestContext context) {
+        var mode = Config.getEnum("healthGateMode", Mode.class);
+        // Setup тесты как раз запускают сервер и авторизуют агента, до них сервер и не должен быть готов
+        if (mode == Mode.OFF || Arrays.stream(context.getAllTestMethods())
+                .allMatch(method -> Arrays.asList(method.getGroups()).contains(SETUP_GROUP))) {
+            return;
+        }
+        var health = ServerHealthProbe.probe(RequestSpecs.superUserSpec(),
+                Duration.ofSeconds(Config.getLong("healthTimeoutSeconds")));
+        logger.info("{}", health);
+        AllureEnvironment.write(health.toEnvironment());
+        Allure.addAttachment("Server health", health.toString());
+        if (!health.isReady()) {
+            throw new IllegalStateException("TeamCity server is not ready\n" + health);
+        }
+
+        var problems = new ArrayList<String>();
+        var maxLatency = Config.getLong("healthMaxLatencyMillis");
+        if (health.latencyMillis() > maxLatency) {
+            problems.add("REST latency %d ms exceeds %d ms".formatted(health.latencyMillis(), maxLatency));
+        }
+        var agentProblem = getAgentProblem(health);
+        if (agentProblem != null) {
+            problems.add(agentProblem);
+        }
+        if (problems.isEmpty()) {
+            return;
+        }
+        if (mode == Mode.ABORT) {
+            throw new IllegalStateException("Server health is below thresholds: " + String.join("; ", problems)
+                    + "\n" + health);
+        }
+        logger.warn("Server health is below thresholds: {}", String.join("; ", problems));
+        agentSkipReason = agentProblem;
+    }
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        var reason = agentSkipReason;
+        if (reason != null && method.isTestMethod() && requiresAgent(method, testResult)) {
+            throw new SkipException("Skipped by the health gate: " + reason);
+        }
+    }
+
+    private static String getAgentProblem(ServerHealth health) {
+        // Неизвестное значение (проба упала) не считаем нехваткой: ошибка пробы уже в репорте
+        var minAgents = Config.getInt("healthMinAgents");
+        if (health.agents() >= 0 && health.agents() < minAgents) {
+            return "%d authorized agents, %d required".formatted(health.agents(), minAgents);
+        }
+        var minFreeAgents = Config.getInt("healthMinFreeAgents");
+        if (health.getFreeAgents() >= 0 && health.getFreeAgents() < minFreeAgents) {
+            return "%d free agents, %d required".formatted(health.getFreeAgents(), minFreeAgents);
+        }
+        return null;
+    }
+
+    private static boolean requiresAgent(IInvokedMethod method, ITestResult testResult) {
+        return method.getTestMethod().getConstructorOrMethod().getMethod().isAnnotationPresent(RequiresAgent.class)
+                || testResult.getTestClass().getRealClass().isAnnotationPresent(RequiresAgent.class);
+    }
+
+    private enum Mode {
+        OFF,
+        SKIP,
+        ABORT
+    }
+
+}
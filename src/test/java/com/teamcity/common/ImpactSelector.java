@@ -0,0 +1,174 @@
+package com.teamcity.common;
+
+import com.teamcity.api.config.Config;
+import com.teamcity.api.enums.Endpoint;
+import com.teamcity.api.impact.ImpactIndex;
+import com.teamcity.api.impact.UsageRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Выбор тестов по изменениям (testSelection=impact): по git diff определяются затронутые API ресурсы и page object'ы,
+// и запускаются только тесты, которые их использовали по данным ImpactIndex, тесты из измененных тестовых классов
+// и тесты, которых еще нет в индексе. Любое изменение, которое нельзя сопоставить с ресурсом или страницей
+// (конфиг, генераторы, базовые реквестеры, pom.xml, BaseTest и т.п.), а также ошибка git приводят к полному прогону
+public final class ImpactSelector implements IMethodInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImpactSelector.class);
+    private static final long GIT_TIMEOUT_SECONDS = 30;
+    private static final Pattern MODEL = Pattern.compile("src/main/java/com/teamcity/api/models/(\\w+)\\.java");
+    private static final Pattern REQUESTER = Pattern.compile(
+            "src/main/java/com/teamcity/api/requests/with(?:out)?S/(\\w+?)Requester(?:WithS)?\\.java");
+    private static final Pattern PAGE = Pattern.compile("src/main/java/com/teamcity/ui/pages/(?:\\w+/)*(\\w+)\\.java");
+    private static final Pattern TEST_CLASS = Pattern.compile("src/test/java/((?:\\w+/)*\\w+Test)\\.java");
+    private static final Pattern BASE_TEST_CLASS = Pattern.compile(".*/Base\\w*Test\\.java");
+    // Файлы, которые не влияют на выполнение тестов
+    private static final Pattern IGNORED = Pattern.compile("(.*\\.md|docs/.*|\\.github/.*|\\.gitignore)");
+    // Реквестеры со своим URL, не описанные в Endpoint
+    private static final Map<String, String> REQUESTER_RESOURCES = Map.of(
+            "Agents", "/app/rest/agents",
+            "ServerAuthSettings", "/app/rest/server/authSettings");
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (!"impact".equalsIgnoreCase(Config.getProperty("testSelection"))) {
+            return methods;
+        }
+        var index = ImpactIndex.getIndex();
+        if (index.isEmpty()) {
+            logger.info("Impact index is empty, running all tests");
+            return methods;
+        }
+        Impact impact;
+        try {
+            impact = Impact.of(getChangedFiles(Config.getProperty("impactBaseRef")));
+        } catch (IOException | InterruptedException e) {
+            logger.warn("Cannot get changed files from git, running all tests", e);
+            return methods;
+        }
+        if (impact == null) {
+            return methods;
+        }
+        var selected = methods.stream()
+                .filter(method -> impact.affects(method.getMethod().getRealClass().getName(),
+                        index.getUsage(method.getMethod().getQualifiedName())))
+                .toList();
+        logger.info("Impact selection of '{}': {} of {} methods, changed resources {}, pages {}, test classes {}",
+                context.getName(), selected.size(), methods.size(), impact.resources(), impact.pages(),
+                impact.testClasses());
+        return selected;
+    }
+
+    private static Set<String> getChangedFiles(String baseRef) throws IOException, InterruptedException {
+        var changedFiles = new LinkedHashSet<String>();
+        // Изменения ветки относительно базы и незакоммиченные изменения (локальный запуск)
+        changedFiles.addAll(git("diff", "--name-only", baseRef + "...HEAD"));
+        changedFiles.addAll(git("diff", "--name-only", "HEAD"));
+        return changedFiles;
+    }
+
+    private static List<String> git(String... args) throws IOException, InterruptedException {
+        var command = new ArrayList<String>();
+        command.add("git");
+        command.addAll(List.of(args));
+        // Вывод пишется в файл, а не читается из pipe: чтение блокировалось бы до закрытия stdout git'а,
+        // и таймаут не сработал бы, если git завис на запросе пароля или lock файле
+        var outputFile = Files.createTempFile("impact-git", ".out");
+        try {
+            var processBuilder = new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(outputFile.toFile());
+            processBuilder.environment().put("GIT_TERMINAL_PROMPT", "0");
+            var process = processBuilder.start();
+            if (!process.waitFor(GIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("git " + String.join(" ", args) + " timed out after " + GIT_TIMEOUT_SECONDS
+                        + " s");
+            }
+            var output = Files.readString(outputFile, StandardCharsets.UTF_8);
+            if (process.exitValue() != 0) {
+                throw new IOException("git " + String.join(" ", args) + " failed: " + output);
+            }
+            return output.lines().filter(line -> !line.isBlank()).toList();
+        } finally {
+            Files.deleteIfExists(outputFile);
+        }
+    }
+
+    private record Impact(Set<String> resources, Set<String> pages, Set<String> testClasses) {
+
+        // Возвращает null, если изменения нельзя ограничить ресурсами и страницами и нужен полный прогон
+        static Impact of(Collection<String> changedFiles) {
+            var impact = new Impact(new HashSet<>(), new HashSet<>(), new HashSet<>());
+            for (var file : changedFiles) {
+                if (!impact.add(file)) {
+                    logger.info("Change of {} cannot be mapped to tests, running all tests", file);
+                    return null;
+                }
+            }
+            return impact;
+        }
+
+        private boolean add(String file) {
+            if (IGNORED.matcher(file).matches()) {
+                return true;
+            }
+            var model = MODEL.matcher(file);
+            if (model.matches()) {
+                var endpoints = Arrays.stream(Endpoint.values())
+                        .filter(endpoint -> endpoint.getModelClass().getSimpleName().equals(model.group(1)))
+                        .map(Endpoint::getUrl)
+                        .toList();
+                resources.addAll(endpoints);
+                // Вложенные модели (Step, Roles...) используются несколькими ресурсами, их не сопоставляем
+                return !endpoints.isEmpty();
+            }
+            var requester = REQUESTER.matcher(file);
+            if (requester.matches()) {
+                var resource = REQUESTER_RESOURCES.get(requester.group(1));
+                if (resource == null) {
+                    return false;
+                }
+                resources.add(resource);
+                return true;
+            }
+            var page = PAGE.matcher(file);
+            if (page.matches()) {
+                pages.add(UsageRecorder.PAGE_PREFIX + page.group(1));
+                return true;
+            }
+            var testClass = TEST_CLASS.matcher(file);
+            if (testClass.matches() && !BASE_TEST_CLASS.matcher(file).matches()) {
+                testClasses.add(testClass.group(1).replace('/', '.'));
+                return true;
+            }
+            return false;
+        }
+
+        boolean affects(String testClass, Set<String> usage) {
+            // Тест, которого нет в индексе (новый или еще ни разу не запускавшийся), запускается всегда
+            if (usage == null || testClasses.contains(testClass)) {
+                return true;
+            }
+            return usage.stream().anyMatch(key -> pages.contains(key)
+                    || resources.contains(key.substring(key.indexOf(' ') + 1)));
+        }
+
+    }
+
+}
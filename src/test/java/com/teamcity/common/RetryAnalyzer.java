@@ -1,21 +1,40 @@
 package com.teamcity.common;
 
 import com.teamcity.api.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.IRetryAnalyzer;
 import org.testng.ITestResult;
 
 public final class RetryAnalyzer implements IRetryAnalyzer {
 
+    private static final Logger logger = LoggerFactory.getLogger(RetryAnalyzer.class);
+    private static final int MAX_RETRY_COUNT = Config.getInt("maxRetryCount");
+    private static final long RETRY_BACKOFF_MILLIS = Config.getLong("retryBackoffMillis");
     private int retryCount = 0;
 
     @Override
-    // Механизм ретрая теста в случае падения
+    // Механизм ретрая теста в случае транзиентного падения (см. FailureClassifier)
     public boolean retry(ITestResult result) {
-        if (retryCount < Integer.parseInt(Config.getProperty("maxRetryCount"))) {
-            retryCount++;
-            return true;
+        if (retryCount >= MAX_RETRY_COUNT) {
+            return false;
         }
-        return false;
+        if (!FailureClassifier.isTransient(result.getThrowable())) {
+            logger.info("{} failed deterministically, not retrying", result.getMethod().getQualifiedName());
+            return false;
+        }
+        retryCount++;
+        // Экспоненциальная пауза дает серверу время восстановиться после 5xx или обрыва соединения
+        var backoff = RETRY_BACKOFF_MILLIS << (retryCount - 1);
+        logger.info("{} failed with a transient error, retry {} in {} ms", result.getMethod().getQualifiedName(),
+                retryCount, backoff);
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
     }
 
 }
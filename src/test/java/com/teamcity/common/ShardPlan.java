@@ -0,0 +1,113 @@
+package com.teamcity.common;
+
+import com.teamcity.api.config.Config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+// Разбиение тестовых методов на шарды (отдельные JVM / CI раннеры), чтобы шарды заканчивались примерно одновременно.
+// Упаковка жадная (LPT): методы по убыванию длительности, каждый - в наименее загруженный шард. При равенстве
+// длительностей порядок определяется именем метода, при равной загрузке - номером шарда, поэтому при одинаковой
+// истории все раннеры получают один и тот же план, а каждый метод попадает ровно в один шард
+public final class ShardPlan {
+
+    private final List<Shard> shards;
+
+    private ShardPlan(List<Shard> shards) {
+        this.shards = shards;
+    }
+
+    // invocationCounts - invocationCount каждого метода: метод весит столько же, сколько в DurationAwareScheduler
+    public static ShardPlan of(Map<String, Integer> invocationCounts, TestDurationHistory history, long defaultDuration,
+                               int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        // TreeMap фиксирует порядок независимо от входа
+        var durations = new TreeMap<String, Long>();
+        invocationCounts.forEach((name, invocationCount) ->
+                durations.put(name, history.estimate(name, invocationCount, defaultDuration)));
+
+        var shards = new ArrayList<Shard>();
+        for (var index = 0; index < shardCount; index++) {
+            shards.add(new Shard(index));
+        }
+        var leastLoaded = new PriorityQueue<Shard>(Comparator.comparingLong(Shard::getDuration)
+                .thenComparingInt(Shard::getIndex));
+        leastLoaded.addAll(shards);
+        durations.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .forEach(method -> {
+                    var shard = leastLoaded.poll();
+                    shard.add(method.getKey(), method.getValue());
+                    leastLoaded.add(shard);
+                });
+        return new ShardPlan(List.copyOf(shards));
+    }
+
+    public Shard getShard(int index) {
+        if (index < 0 || index >= shards.size()) {
+            throw new IllegalArgumentException("Shard index %d is out of range 0..%d"
+                    .formatted(index, shards.size() - 1));
+        }
+        return shards.get(index);
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    // Печатает план шардирования по методам из истории Allure: <директория allure-results> <количество шардов>
+    // ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.teamcity.common.ShardPlan
+    //     -Dexec.args="target/allure-results 4"
+    public static void main(String[] args) {
+        var history = args.length > 0 ? TestDurationHistory.load(Path.of(args[0])) : TestDurationHistory.load();
+        var shardCount = args.length > 1 ? Integer.parseInt(args[1]) : Config.getInt("shardCount");
+        // Без TestNG invocationCount неизвестен, считаем по одному вызову на метод
+        var plan = of(history.getMethodNames().stream().collect(Collectors.toMap(name -> name, name -> 1)), history,
+                Config.getLong("testDefaultDurationMillis"), shardCount);
+        for (var shard : plan.getShards()) {
+            System.out.printf("Shard %d: %d methods, predicted %s%n", shard.getIndex(), shard.getMethods().size(),
+                    Duration.ofMillis(shard.getDuration()));
+            shard.getMethods().forEach(method -> System.out.println("  " + method));
+        }
+    }
+
+    public static final class Shard {
+
+        private final int index;
+        private final List<String> methods = new ArrayList<>();
+        private long duration;
+
+        private Shard(int index) {
+            this.index = index;
+        }
+
+        private void add(String method, long methodDuration) {
+            methods.add(method);
+            duration += methodDuration;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public List<String> getMethods() {
+            return List.copyOf(methods);
+        }
+
+        public long getDuration() {
+            return duration;
+        }
+
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.teamcity.common;
+
+import com.teamcity.api.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Оставляет в прогоне только методы своего шарда: -DshardIndex=0 -DshardCount=4 на каждом из четырех раннеров.
+// План строится по всем методам <test> тэга и истории длительностей из Allure (см. ShardPlan)
+public final class ShardingInterceptor implements IMethodInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardingInterceptor.class);
+    private volatile TestDurationHistory history;
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        var shardCount = Config.getInt("shardCount");
+        if (shardCount <= 1) {
+            return methods;
+        }
+        var shardIndex = Config.getInt("shardIndex");
+        // Несколько инстансов одного метода (фабрика) дают одну запись плана
+        var invocationCounts = methods.stream().collect(Collectors.toMap(
+                method -> method.getMethod().getQualifiedName(), method -> method.getMethod().getInvocationCount(),
+                Math::max));
+        var plan = ShardPlan.of(invocationCounts, getHistory(), Config.getLong("testDefaultDurationMillis"),
+                shardCount);
+        var shard = plan.getShard(shardIndex);
+        var shardMethods = new HashSet<>(shard.getMethods());
+        var selected = methods.stream()
+                .filter(method -> shardMethods.contains(method.getMethod().getQualifiedName()))
+                .toList();
+        logger.info("Shard {}/{} of '{}': {} of {} methods, predicted {}", shardIndex, shardCount, context.getName(),
+                selected.size(), methods.size(), Duration.ofMillis(shard.getDuration()));
+        return selected;
+    }
+
+    private TestDurationHistory getHistory() {
+        if (history == null) {
+            synchronized (this) {
+                if (history == null) {
+                    history = TestDurationHistory.load();
+                }
+            }
+        }
+        return history;
+    }
+
+}
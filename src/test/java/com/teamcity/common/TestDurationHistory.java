@@ -0,0 +1,86 @@
+package com.teamcity.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.qameta.allure.util.PropertiesUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Длительности тестов из результатов прошлого Allure прогона (*-result.json): если target/allure-results не очищался
+// или в CI туда скачаны результаты предыдущего запуска. Ключ - полное имя метода (fullName в Allure)
+public final class TestDurationHistory {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestDurationHistory.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private final Map<String, Long> durations;
+
+    private TestDurationHistory(Map<String, Long> durations) {
+        this.durations = durations;
+    }
+
+    public static TestDurationHistory load() {
+        return load(Path.of(PropertiesUtils.loadAllureProperties()
+                .getProperty("allure.results.directory", "allure-results")));
+    }
+
+    public static TestDurationHistory load(Path resultsDirectory) {
+        // fullName -> historyId -> [сумма длительностей, количество]. historyId различает наборы параметров
+        // дата провайдера, поэтому длительность метода - сумма средних длительностей по его наборам параметров
+        var samples = new HashMap<String, Map<String, long[]>>();
+        if (Files.isDirectory(resultsDirectory)) {
+            try (var files = Files.newDirectoryStream(resultsDirectory, "*-result.json")) {
+                for (var file : files) {
+                    try {
+                        var result = MAPPER.readTree(file.toFile());
+                        var fullName = result.path("fullName").asText(null);
+                        var start = result.path("start").asLong(-1);
+                        var stop = result.path("stop").asLong(-1);
+                        if (fullName == null || start < 0 || stop < start) {
+                            continue;
+                        }
+                        var sample = samples.computeIfAbsent(fullName, name -> new HashMap<>())
+                                .computeIfAbsent(result.path("historyId").asText(""), id -> new long[2]);
+                        sample[0] += stop - start;
+                        sample[1]++;
+                    } catch (IOException e) {
+                        // Битый или недописанный файл результата не должен ломать запуск, просто пропускаем его
+                        logger.debug("Cannot read Allure result {}", file, e);
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Cannot read Allure results from {}", resultsDirectory, e);
+            }
+        }
+        var durations = new HashMap<String, Long>();
+        samples.forEach((fullName, byHistoryId) -> durations.put(fullName, byHistoryId.values().stream()
+                .mapToLong(sample -> sample[0] / sample[1])
+                .sum()));
+        return new TestDurationHistory(durations);
+    }
+
+    public Long getDuration(String fullName) {
+        return durations.get(fullName);
+    }
+
+    // Оценка метода для планирования и шардирования: сумма средних длительностей его наборов параметров (или оценка
+    // по умолчанию для метода без истории), умноженная на invocationCount
+    public long estimate(String fullName, int invocationCount, long defaultDuration) {
+        var duration = durations.get(fullName);
+        return (duration == null ? defaultDuration : duration) * Math.max(1, invocationCount);
+    }
+
+    public Set<String> getMethodNames() {
+        return Set.copyOf(durations.keySet());
+    }
+
+    public int size() {
+        return durations.size();
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.teamcity.common;
+
+import com.teamcity.api.config.Config;
+import org.testng.thread.IExecutorServiceFactory;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Фабрика подключается профилем virtual-threads (pom.xml): TestNG запускает каждый тестовый метод в своем виртуальном
+// потоке, а одновременно выполняется не больше virtualThreadConcurrency методов. Пока тест ждет HTTP ответ или
+// Awaitility, виртуальный поток отпускает платформенный, поэтому десятки параллельных API тестов не требуют десятков
+// платформенных потоков. UI сьют продолжает работать на обычных потоках: у Selenide драйвер привязан к потоку
+public final class VirtualThreadExecutorFactory implements IExecutorServiceFactory {
+
+    @Override
+    public ExecutorService create(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                  BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory) {
+        var concurrency = Config.getProperty("virtualThreadConcurrency");
+        // Без настройки ограничиваемся thread-count из xml сьюта, как и обычный пул TestNG
+        return new VirtualThreadExecutor(concurrency == null || concurrency.isBlank()
+                ? Math.max(corePoolSize, maximumPoolSize)
+                : Integer.parseInt(concurrency));
+    }
+
+    private static final class VirtualThreadExecutor extends AbstractExecutorService {
+
+        private final Semaphore permits;
+        private final AtomicLong threadNumber = new AtomicLong();
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        private final Object terminationLock = new Object();
+        private volatile boolean shutdown;
+
+        private VirtualThreadExecutor(int concurrency) {
+            permits = new Semaphore(concurrency);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Executor is shut down");
+            }
+            // Разрешение берется уже внутри виртуального потока: execute не блокирует оркестратор TestNG,
+            // а ожидающие своей очереди тесты стоят запаркованными виртуальными потоками почти без затрат
+            var thread = Thread.ofVirtual().name("testng-virtual-" + threadNumber.incrementAndGet()).unstarted(() -> {
+                try {
+                    permits.acquire();
+                    try {
+                        command.run();
+                    } finally {
+                        permits.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    threads.remove(Thread.currentThread());
+                    synchronized (terminationLock) {
+                        terminationLock.notifyAll();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            threads.forEach(Thread::interrupt);
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && threads.isEmpty();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            var deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (terminationLock) {
+                while (!isTerminated()) {
+                    var remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(terminationLock, remaining);
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.teamcity.ui;
 
+import com.teamcity.api.annotations.RequiresAgent;
+import com.teamcity.api.builds.BuildTimings;
 import com.teamcity.api.models.Build;
 import com.teamcity.api.models.comparison.ModelAssertions;
 import com.teamcity.api.requests.withS.RequesterWithS;
@@ -17,6 +19,7 @@ import static com.teamcity.api.enums.Endpoint.BUILD_TYPES;
 import static com.teamcity.api.enums.Endpoint.PROJECTS;
 
 @Feature("Start build")
+@RequiresAgent
 public class StartBuildTest extends BaseUiTest {
 
     @Test(description = "User should be able to create build type step and start build", groups = {"Regression"})
@@ -46,9 +49,11 @@ public class StartBuildTest extends BaseUiTest {
                     .authSpec(testData.get().getUser()), BUILDS);
             // Каждое действие на UI всегда проверяется через API
             var build = checkedBuildRequest.read(createdBuildId);
+            BuildTimings.getTimings().attach(build);
 
-            // Create expected build with finished state and success status
+            // Create expected build of the test build type with finished state and success status
             var expectedBuild = Build.builder()
+                    .buildType(testData.get().getBuildType())
                     .state("finished")
                     .status("SUCCESS")
                     .build();
@@ -1,5 +1,6 @@
 package com.teamcity.ui.listeners;
 
+import com.teamcity.api.config.Config;
 import com.teamcity.ui.annotations.Browsers;
 import org.testng.IInvokedMethodListener;
 import org.testng.IInvokedMethod;
@@ -8,7 +9,6 @@ import org.testng.SkipException;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Properties;
 import java.util.logging.Logger;
 
 /**
@@ -21,10 +21,10 @@ public class BrowserTestListener implements IInvokedMethodListener {
     private static final Logger logger = Logger.getLogger(BrowserTestListener.class.getName());
     private static final String BROWSER_PROPERTY = "browser";
     private static final String DEFAULT_BROWSER = "chrome";
+    private static final String CONFIGURED_BROWSER = getConfiguredBrowser();
 
     @Override
     public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
-        String configuredBrowser = getConfiguredBrowser();
         Browsers browsersAnnotation = getBrowsersAnnotation(method, testResult);
 
         if (browsersAnnotation == null) {
@@ -35,18 +35,18 @@ public class BrowserTestListener implements IInvokedMethodListener {
 
         List<String> supportedBrowsers = Arrays.asList(browsersAnnotation.value());
         boolean isSupported = supportedBrowsers.stream()
-                .anyMatch(browser -> browser.equalsIgnoreCase(configuredBrowser));
+                .anyMatch(browser -> browser.equalsIgnoreCase(CONFIGURED_BROWSER));
 
         if (!isSupported) {
             String supportedBrowsersList = String.join(", ", supportedBrowsers);
             String reason = String.format("Test can be run on %s browser(s) only, but configured browser is: %s. Skipping test: %s",
-                supportedBrowsersList, configuredBrowser, method.getTestMethod().getMethodName());
+                supportedBrowsersList, CONFIGURED_BROWSER, method.getTestMethod().getMethodName());
 
             logger.warning(reason);
             throw new SkipException(reason);
         } else {
             logger.info(String.format("Configured browser '%s' is supported for test: %s. Test will run.",
-                configuredBrowser, method.getTestMethod().getMethodName()));
+                CONFIGURED_BROWSER, method.getTestMethod().getMethodName()));
         }
     }
 
@@ -56,29 +56,16 @@ public class BrowserTestListener implements IInvokedMethodListener {
     }
 
     /**
-     * Gets the configured browser from system properties or config file.
+     * Resolves the configured browser once: the Config snapshot already applies system properties.
      *
      * @return the configured browser name
      */
-    private String getConfiguredBrowser() {
-        // First try system property
-        String browser = System.getProperty(BROWSER_PROPERTY);
+    private static String getConfiguredBrowser() {
+        String browser = Config.getProperty(BROWSER_PROPERTY);
         if (browser != null && !browser.trim().isEmpty()) {
             return browser.trim().toLowerCase();
         }
 
-        // Then try from config.properties
-        try {
-            Properties config = new Properties();
-            config.load(getClass().getClassLoader().getResourceAsStream("config.properties"));
-            browser = config.getProperty(BROWSER_PROPERTY);
-            if (browser != null && !browser.trim().isEmpty()) {
-                return browser.trim().toLowerCase();
-            }
-        } catch (Exception e) {
-            logger.warning("Could not load config.properties: " + e.getMessage());
-        }
-
         // Default to chrome if nothing is configured
         return DEFAULT_BROWSER;
     }